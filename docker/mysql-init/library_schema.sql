@@ -20,7 +20,9 @@ CREATE TABLE users
     email     VARCHAR(255) NOT NULL,
     PRIMARY KEY (id),
     UNIQUE KEY uk_users_username (username),
-    UNIQUE KEY uk_users_email (email)
+    UNIQUE KEY uk_users_email (email),
+    KEY         idx_users_firstname_id (firstname, id),
+    KEY         idx_users_lastname_id (lastname, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- books
@@ -36,7 +38,9 @@ CREATE TABLE books
     description  TEXT         NOT NULL,
     pages        INT          NOT NULL,
     PRIMARY KEY (id),
-    KEY          idx_books_isbn(isbn)
+    UNIQUE KEY   uk_books_isbn(isbn),
+    KEY          idx_books_title_id(title, id),
+    KEY          idx_books_author_id(author, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- loans
@@ -47,7 +51,10 @@ CREATE TABLE loans
     book_id     BIGINT       NOT NULL,
     borrowed_at TIMESTAMP(6) NOT NULL,
     returned_at TIMESTAMP(6) NULL,
+    -- book_id while the loan is open, NULL once returned: at most one open loan per book
+    open_book_id BIGINT GENERATED ALWAYS AS (IF(returned_at IS NULL, book_id, NULL)) STORED,
     PRIMARY KEY (id),
+    UNIQUE KEY  uk_loans_open_book(open_book_id),
     KEY         idx_loans_user(user_id),
     KEY         idx_loans_book(book_id),
     CONSTRAINT fk_loans_user FOREIGN KEY (user_id) REFERENCES users (id),
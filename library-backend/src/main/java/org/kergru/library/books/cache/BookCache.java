@@ -0,0 +1,290 @@
+package org.kergru.library.books.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.kergru.library.books.repository.BookRepository;
+import org.kergru.library.books.repository.BookWithLoanProjection;
+import org.kergru.library.loans.repository.LoanRepository;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.LoanStatusDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches books by isbn, split into the book metadata, which practically never changes, and the loan status of the
+ * book, which changes whenever it is borrowed or returned.
+ *
+ * <p>A metadata miss loads book and loan status with one join. A status miss only reads the open loan of the book.
+ * The loan write paths keep the status current by calling {@link #loanOpened} and {@link #loanClosed}, the TTL of the
+ * status only bounds the staleness if a book is borrowed or returned elsewhere.
+ */
+@Component
+public class BookCache {
+
+  public static final LoanStatusDto AVAILABLE = new LoanStatusDto(true, null, null);
+
+  private final BookRepository bookRepository;
+
+  private final LoanRepository loanRepository;
+
+  private final AsyncCache<String, CachedBook> metadata;
+
+  private final AsyncCache<Long, LoanStatusDto> status;
+
+  /**
+   * Book id of each open loan whose status is cached. It is evicted like the status, so the return of a loan does not
+   * rely on it, the caller tells the book.
+   */
+  private final Cache<Long, Long> openLoans;
+
+  /**
+   * Isbn of each book whose metadata was loaded, to find the cached book of an open loan.
+   */
+  private final Cache<Long, String> isbnsById;
+
+  /**
+   * Number of loan events and book changes seen by this instance, part of the {@link #catalogueVersion()}.
+   */
+  private final AtomicLong changes = new AtomicLong();
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+  private final long statusTtlMillis;
+
+  public BookCache(
+      BookRepository bookRepository,
+      LoanRepository loanRepository,
+      MeterRegistry meterRegistry,
+      @Value("${library.books.cache.metadata.ttl:1h}") Duration metadataTtl,
+      @Value("${library.books.cache.status.ttl:60s}") Duration statusTtl,
+      @Value("${library.books.cache.max-size:10000}") long maxSize) {
+    this.bookRepository = bookRepository;
+    this.loanRepository = loanRepository;
+    this.statusTtlMillis = Math.max(1, statusTtl.toMillis());
+    this.metadata = Caffeine.newBuilder()
+        .expireAfterWrite(metadataTtl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+    this.status = Caffeine.newBuilder()
+        .expireAfterWrite(statusTtl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+    this.openLoans = Caffeine.newBuilder()
+        .expireAfterWrite(statusTtl)
+        .maximumSize(maxSize)
+        .build();
+    this.isbnsById = Caffeine.newBuilder()
+        .expireAfterWrite(metadataTtl)
+        .maximumSize(maxSize)
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, metadata.synchronous(), "book-metadata");
+    CaffeineCacheMetrics.monitor(meterRegistry, status.synchronous(), "book-status");
+  }
+
+  /**
+   * Cached book without loan status, empty if there is no book with the isbn.
+   */
+  public Mono<CachedBook> getMetadata(String isbn) {
+    return Mono.fromFuture(() -> metadata.get(isbn, (key, executor) -> bookRepository.findByIsbn(key)
+            .doOnNext(this::putStatus)
+            .map(BookCache::toCachedBook)
+            .toFuture()));
+  }
+
+  /**
+   * Cached books without loan status by isbn, misses are loaded together with one query. Isbns without book are
+   * missing in the result.
+   */
+  public Mono<Map<String, CachedBook>> getAllMetadata(Collection<String> isbns) {
+    return Mono.fromFuture(() -> metadata.getAll(isbns, (keys, executor) -> bookRepository
+        .findAllByIsbnWithJoinLoans(Set.copyOf(keys))
+        .doOnNext(this::putStatus)
+        .collectMap(BookWithLoanProjection::getIsbn, BookCache::toCachedBook)
+        .toFuture()));
+  }
+
+  /**
+   * Cached book of an open loan, to tell the book of a returned loan without a query.
+   *
+   * @return the book, empty if the loan or its book is not cached
+   */
+  public Optional<CachedBook> getOpenLoanBook(Long loanId) {
+    return Optional.ofNullable(openLoans.getIfPresent(loanId))
+        .map(isbnsById::getIfPresent)
+        .map(metadata.synchronous()::getIfPresent);
+  }
+
+  /**
+   * Cached loan status of a book.
+   */
+  public Mono<LoanStatusDto> getStatus(Long bookId) {
+    return Mono.fromFuture(() -> status.get(bookId, (key, executor) -> loanRepository.findOpenLoanByBookId(key)
+        .map(loan -> {
+          openLoans.put(loan.id, key);
+          return new LoanStatusDto(false, loan.userId, loan.borrowedAt);
+        })
+        .defaultIfEmpty(AVAILABLE)
+        .toFuture()));
+  }
+
+  /**
+   * Cached book with its current loan status, empty if there is no book with the isbn.
+   */
+  public Mono<BookDto> findByIsbn(String isbn) {
+    return getMetadata(isbn)
+        .flatMap(book -> getStatus(book.id()).map(book::withStatus));
+  }
+
+  /**
+   * Cached books with their current loan status by isbn, isbns without book are missing in the result. Metadata and
+   * loan status missing in the cache are each loaded together with one query.
+   */
+  public Mono<Map<String, BookDto>> findAllByIsbn(Collection<String> isbns) {
+    return getAllMetadata(isbns)
+        .flatMap(books -> getAllStatus(books.values().stream().map(CachedBook::id).toList())
+            .map(statuses -> books.values().stream().collect(Collectors.toMap(
+                book -> book.book().isbn(),
+                book -> book.withStatus(statuses.getOrDefault(book.id(), AVAILABLE))))));
+  }
+
+  /**
+   * Cached loan status of several books by book id, misses are loaded together with one query.
+   */
+  public Mono<Map<Long, LoanStatusDto>> getAllStatus(Collection<Long> bookIds) {
+    if (bookIds.isEmpty()) {
+      return Mono.just(Map.of());
+    }
+    return Mono.fromFuture(() -> status.getAll(bookIds, (keys, executor) -> loanRepository
+        .findOpenLoansByBookIds(Set.copyOf(keys))
+        .doOnNext(loan -> openLoans.put(loan.id, loan.bookId))
+        .collectMap(loan -> loan.bookId, loan -> new LoanStatusDto(false, loan.userId, loan.borrowedAt))
+        .map(found -> {
+          Map<Long, LoanStatusDto> statuses = new HashMap<>(found);
+          keys.forEach(key -> statuses.putIfAbsent(key, AVAILABLE));
+          return statuses;
+        })
+        .toFuture()));
+  }
+
+  /**
+   * Version of the catalogue including loan status, for entity tags of search results. It changes with every loan
+   * event and book change of this instance, with the restart of the instance and after the status TTL. Changes made
+   * by other instances or directly in the database are not seen before the status TTL has passed, a client may be
+   * told for that long that an outdated page is still current, so the version is only fit for a single instance.
+   */
+  public String catalogueVersion() {
+    return epoch + "-" + changes.get() + "-" + Long.toString(System.currentTimeMillis() / statusTtlMillis, 36);
+  }
+
+  /**
+   * Records a new loan of a book.
+   */
+  public void loanOpened(Long bookId, Long loanId, LoanStatusDto loanStatus) {
+    changes.incrementAndGet();
+    openLoans.put(loanId, bookId);
+    status.put(bookId, Mono.just(loanStatus).toFuture());
+  }
+
+  /**
+   * Records the return of a loan of a book, the book becomes available.
+   */
+  public void loanClosed(Long loanId, Long bookId) {
+    changes.incrementAndGet();
+    openLoans.invalidate(loanId);
+    status.put(bookId, Mono.just(AVAILABLE).toFuture());
+  }
+
+  /**
+   * Removes the cached loan status of a book, it is read again on the next access.
+   */
+  public void invalidateStatus(Long bookId) {
+    changes.incrementAndGet();
+    status.synchronous().invalidate(bookId);
+  }
+
+  /**
+   * Removes a book from the cache, used if the metadata of the book changed.
+   */
+  public void invalidate(String isbn) {
+    changes.incrementAndGet();
+    CachedBook cached = metadata.synchronous().getIfPresent(isbn);
+    metadata.synchronous().invalidate(isbn);
+    if (cached != null) {
+      invalidateStatus(cached.id());
+    }
+  }
+
+  /**
+   * Removes all books from the cache.
+   */
+  public void invalidateAll() {
+    changes.incrementAndGet();
+    metadata.synchronous().invalidateAll();
+    status.synchronous().invalidateAll();
+    openLoans.invalidateAll();
+    isbnsById.invalidateAll();
+  }
+
+  private void putStatus(BookWithLoanProjection book) {
+    isbnsById.put(book.getId(), book.getIsbn());
+    if (book.getLoanId() != null) {
+      openLoans.put(book.getLoanId(), book.getId());
+      status.put(book.getId(),
+          Mono.just(new LoanStatusDto(false, book.getBorrowerId(), book.getBorrowedAt())).toFuture());
+    } else {
+      status.put(book.getId(), Mono.just(AVAILABLE).toFuture());
+    }
+  }
+
+  private static CachedBook toCachedBook(BookWithLoanProjection b) {
+    return new CachedBook(b.getId(), new BookDto(
+        b.getIsbn(),
+        b.getTitle(),
+        b.getAuthor(),
+        b.getPublishedAt(),
+        b.getPublisher(),
+        b.getLanguage(),
+        b.getPages(),
+        b.getDescription(),
+        null
+    ));
+  }
+
+  /**
+   * Book metadata without loan status.
+   *
+   * @param id   id of the book
+   * @param book book with loan status null
+   */
+  public record CachedBook(Long id, BookDto book) {
+
+    public BookDto withStatus(LoanStatusDto loanStatus) {
+      return new BookDto(
+          book.isbn(),
+          book.title(),
+          book.author(),
+          book.publishedAt(),
+          book.publisher(),
+          book.language(),
+          book.pages(),
+          book.description(),
+          loanStatus
+      );
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package org.kergru.library.books.export;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.LoanStatusDto;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serializes a stream of books into the bytes of an export file, chunk by chunk, so memory does not depend on the number
+ * of books.
+ */
+@Component
+public class BookExportWriter {
+
+  private static final String CSV_HEADER =
+      "isbn,title,author,publishedAt,publisher,language,pages,description,available,borrowedBy,borrowedAt\n";
+
+  /**
+   * Number of books serialized into one buffer.
+   */
+  private static final int LINES_PER_BUFFER = 500;
+
+  private final ObjectMapper objectMapper;
+
+  public BookExportWriter(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  public Flux<DataBuffer> write(Flux<BookDto> books, ExportFormat format, boolean gzip) {
+    Flux<byte[]> chunks = books
+        .map(book -> format == ExportFormat.CSV ? csvLine(book) : jsonLine(book))
+        .buffer(LINES_PER_BUFFER)
+        .map(BookExportWriter::concat);
+    if (format == ExportFormat.CSV) {
+      chunks = Flux.concat(Mono.just(CSV_HEADER.getBytes(StandardCharsets.UTF_8)), chunks);
+    }
+    if (gzip) {
+      chunks = gzip(chunks);
+    }
+    return chunks.map(DefaultDataBufferFactory.sharedInstance::wrap);
+  }
+
+  /**
+   * Compresses the chunks into one gzip stream, each chunk is flushed so it can be sent right away.
+   */
+  private static Flux<byte[]> gzip(Flux<byte[]> chunks) {
+    return Flux.defer(() -> {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      GZIPOutputStream gzip;
+      try {
+        gzip = new GZIPOutputStream(compressed, true);
+      } catch (IOException e) {
+        return Flux.error(e);
+      }
+      return chunks
+          .map(chunk -> {
+            try {
+              gzip.write(chunk);
+              gzip.flush();
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return drain(compressed);
+          })
+          .concatWith(Mono.fromCallable(() -> {
+            gzip.finish();
+            return drain(compressed);
+          }));
+    });
+  }
+
+  private static byte[] drain(ByteArrayOutputStream out) {
+    byte[] bytes = out.toByteArray();
+    out.reset();
+    return bytes;
+  }
+
+  private byte[] jsonLine(BookDto book) {
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(book);
+      byte[] line = new byte[json.length + 1];
+      System.arraycopy(json, 0, line, 0, json.length);
+      line[json.length] = '\n';
+      return line;
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Book " + book.isbn() + " can not be serialized", e);
+    }
+  }
+
+  private static byte[] csvLine(BookDto book) {
+    LoanStatusDto status = book.loanStatus();
+    return Stream.of(
+            book.isbn(),
+            book.title(),
+            book.author(),
+            book.publishedAt(),
+            book.publisher(),
+            book.language(),
+            book.pages(),
+            book.description(),
+            status != null ? status.available() : null,
+            status != null ? status.borrowedBy() : null,
+            status != null ? status.borrowedAt() : null)
+        .map(value -> csvField(Objects.toString(value, "")))
+        .collect(Collectors.joining(",", "", "\n"))
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String csvField(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static byte[] concat(List<byte[]> lines) {
+    int length = 0;
+    for (byte[] line : lines) {
+      length += line.length;
+    }
+    byte[] chunk = new byte[length];
+    int position = 0;
+    for (byte[] line : lines) {
+      System.arraycopy(line, 0, chunk, position, line.length);
+      position += line.length;
+    }
+    return chunk;
+  }
+}
@@ -0,0 +1,30 @@
+package org.kergru.library.books.export;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats of the catalogue export.
+ */
+public enum ExportFormat {
+
+  NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+
+  CSV(new MediaType("text", "csv"), "csv");
+
+  private final MediaType mediaType;
+
+  private final String fileExtension;
+
+  ExportFormat(MediaType mediaType, String fileExtension) {
+    this.mediaType = mediaType;
+    this.fileExtension = fileExtension;
+  }
+
+  public MediaType mediaType() {
+    return mediaType;
+  }
+
+  public String fileExtension() {
+    return fileExtension;
+  }
+}
@@ -0,0 +1,195 @@
+package org.kergru.library.books.importer;
+
+import io.r2dbc.spi.R2dbcException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.kergru.library.books.cache.BookCache;
+import org.kergru.library.books.repository.BookEntity;
+import org.kergru.library.books.repository.BookRepository;
+import org.kergru.library.books.search.BookSearchIndex;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.ImportBatchResultDto;
+import org.kergru.library.paging.CountCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Imports books in batches: each batch is validated and upserted by isbn with one multi-row statement, a bounded number
+ * of batches is written concurrently. Rows are written in isbn order, so concurrent batches lock the unique index in
+ * the same order, and a batch chosen as deadlock victim anyway is retried. Search index, book cache and count cache
+ * are updated after each batch.
+ */
+@Service
+public class BookImporter {
+
+  /**
+   * Maximum number of error messages reported per batch.
+   */
+  private static final int MAX_ERRORS_PER_BATCH = 20;
+
+  /**
+   * MySQL error code of a deadlock, the statement is rolled back and can be repeated.
+   */
+  private static final int ER_LOCK_DEADLOCK = 1213;
+
+  private static final int MAX_DEADLOCK_RETRIES = 3;
+
+  private final BookRepository bookRepository;
+
+  private final BookSearchIndex searchIndex;
+
+  private final BookCache bookCache;
+
+  private final CountCache countCache;
+
+  private final int batchSize;
+
+  private final int concurrency;
+
+  public BookImporter(
+      BookRepository bookRepository,
+      BookSearchIndex searchIndex,
+      BookCache bookCache,
+      CountCache countCache,
+      @Value("${library.books.import.batch-size:500}") int batchSize,
+      @Value("${library.books.import.concurrency:4}") int concurrency) {
+    this.bookRepository = bookRepository;
+    this.searchIndex = searchIndex;
+    this.bookCache = bookCache;
+    this.countCache = countCache;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Imports books parsed from NDJSON, reports one result per batch in batch order.
+   */
+  public Flux<ImportBatchResultDto> importBooks(Flux<BookDto> books) {
+    return importRows(books.index((index, book) -> ImportRow.of(index + 1, book)));
+  }
+
+  /**
+   * Imports books from CSV lines, reports one result per batch in batch order.
+   *
+   * @throws IllegalArgumentException (as error signal) if the CSV header lacks a required column
+   */
+  public Flux<ImportBatchResultDto> importCsv(Flux<String> lines) {
+    return importRows(CsvBookParser.parse(lines));
+  }
+
+  private Flux<ImportBatchResultDto> importRows(Flux<ImportRow> rows) {
+    return rows
+        .buffer(batchSize)
+        .index()
+        .flatMapSequential(batch -> importBatch(batch.getT1().intValue() + 1, batch.getT2()), concurrency);
+  }
+
+  private Mono<ImportBatchResultDto> importBatch(int batchNumber, List<ImportRow> rows) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      List<String> errors = new ArrayList<>();
+      int rejected = 0;
+      // a later row with the same isbn wins, as it would in consecutive statements
+      Map<String, BookEntity> books = new LinkedHashMap<>();
+      for (ImportRow row : rows) {
+        String error = row.error() != null ? row.error() : validate(row.book());
+        if (error != null) {
+          rejected++;
+          if (errors.size() < MAX_ERRORS_PER_BATCH) {
+            errors.add("Row " + row.number() + ": " + error);
+          }
+        } else {
+          BookEntity book = toEntity(row.book());
+          books.put(book.isbn, book);
+        }
+      }
+
+      int imported = books.size();
+      int rejectedRows = rejected;
+      List<BookEntity> byIsbn = books.values().stream().sorted(Comparator.comparing(book -> book.isbn)).toList();
+      return bookRepository.upsertBooks(byIsbn)
+          .retryWhen(Retry.backoff(MAX_DEADLOCK_RETRIES, Duration.ofMillis(20)).filter(BookImporter::isDeadlock))
+          .then(updateCaches(books.keySet().stream().toList()))
+          .then(Mono.fromSupplier(() -> {
+            long durationNanos = Math.max(1, System.nanoTime() - start);
+            return new ImportBatchResultDto(
+                batchNumber,
+                rows.size(),
+                imported,
+                rejectedRows,
+                errors,
+                durationNanos / 1_000_000,
+                rows.size() * 1_000_000_000.0 / durationNanos
+            );
+          }));
+    });
+  }
+
+  private Mono<Void> updateCaches(List<String> isbns) {
+    if (isbns.isEmpty()) {
+      return Mono.empty();
+    }
+    return bookRepository.findAllForSearchIndexByIsbn(isbns)
+        .doOnNext(searchIndex::index)
+        .then(Mono.fromRunnable(() -> {
+          isbns.forEach(bookCache::invalidate);
+          countCache.invalidate(CountCache.BOOKS);
+        }));
+  }
+
+  /**
+   * Reason why the book can not be imported, null if it is valid.
+   */
+  private static String validate(BookDto book) {
+    if (book == null) {
+      return "Empty row";
+    }
+    if (!StringUtils.hasText(book.isbn()) || book.isbn().trim().length() > 32) {
+      return "isbn must have 1 to 32 characters";
+    }
+    if (!hasText(book.title(), 255) || !hasText(book.author(), 255) || !hasText(book.publisher(), 255)) {
+      return "title, author and publisher must have 1 to 255 characters (" + book.isbn() + ")";
+    }
+    if (!hasText(book.language(), 32)) {
+      return "language must have 1 to 32 characters (" + book.isbn() + ")";
+    }
+    if (book.publishedAt() == null || book.pages() == null || book.pages() < 0) {
+      return "publishedAt and pages are required (" + book.isbn() + ")";
+    }
+    return null;
+  }
+
+  private static boolean isDeadlock(Throwable error) {
+    for (Throwable e = error; e != null; e = e.getCause()) {
+      if (e instanceof R2dbcException r2dbc && r2dbc.getErrorCode() == ER_LOCK_DEADLOCK) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasText(String value, int maxLength) {
+    return StringUtils.hasText(value) && value.length() <= maxLength;
+  }
+
+  private static BookEntity toEntity(BookDto dto) {
+    BookEntity book = new BookEntity();
+    book.isbn = dto.isbn().trim();
+    book.title = dto.title();
+    book.author = dto.author();
+    book.publishedAt = dto.publishedAt();
+    book.publisher = dto.publisher();
+    book.language = dto.language();
+    book.description = dto.description() != null ? dto.description() : "";
+    book.pages = dto.pages();
+    return book;
+  }
+}
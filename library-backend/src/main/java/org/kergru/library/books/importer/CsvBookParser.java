@@ -0,0 +1,147 @@
+package org.kergru.library.books.importer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.kergru.library.model.BookDto;
+import reactor.core.publisher.Flux;
+
+/**
+ * Parses CSV lines into books, incrementally as the lines arrive. The first record is the header naming the columns,
+ * in the format of the export: isbn, title, author, publishedAt, publisher, language, pages and optionally description.
+ * Other columns are ignored. Quoted fields may contain separators, doubled quotes and line breaks.
+ */
+final class CsvBookParser {
+
+  private static final List<String> REQUIRED_COLUMNS =
+      List.of("isbn", "title", "author", "publishedAt", "publisher", "language", "pages");
+
+  private final StringBuilder pending = new StringBuilder();
+
+  private Map<String, Integer> columns;
+
+  private long number;
+
+  private CsvBookParser() {
+  }
+
+  /**
+   * Parses the lines of a CSV body, one row per record after the header.
+   *
+   * @throws IllegalArgumentException (as error signal) if the header lacks a required column
+   */
+  static Flux<ImportRow> parse(Flux<String> lines) {
+    return Flux.defer(() -> {
+      CsvBookParser parser = new CsvBookParser();
+      return lines.<ImportRow>handle((line, sink) -> {
+        ImportRow row = parser.accept(line);
+        if (row != null) {
+          sink.next(row);
+        }
+      }).concatWith(Flux.defer(() -> {
+        ImportRow last = parser.finish();
+        return last != null ? Flux.just(last) : Flux.empty();
+      }));
+    });
+  }
+
+  private ImportRow accept(String line) {
+    if (pending.isEmpty() && line.isBlank()) {
+      return null;
+    }
+    if (!pending.isEmpty()) {
+      pending.append('\n');
+    }
+    pending.append(line);
+    List<String> fields = split(pending);
+    if (fields == null) {
+      return null; // line break inside a quoted field, the record continues on the next line
+    }
+    pending.setLength(0);
+    return record(fields);
+  }
+
+  private ImportRow finish() {
+    if (pending.isEmpty()) {
+      return null;
+    }
+    pending.setLength(0);
+    return ImportRow.invalid(++number, "Unterminated quoted field");
+  }
+
+  private ImportRow record(List<String> fields) {
+    if (columns == null) {
+      columns = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        columns.put(fields.get(i).trim(), i);
+      }
+      List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+      if (!missing.isEmpty()) {
+        throw new IllegalArgumentException("CSV header lacks columns " + missing);
+      }
+      return null;
+    }
+
+    long rowNumber = ++number;
+    try {
+      return ImportRow.of(rowNumber, new BookDto(
+          field(fields, "isbn"),
+          field(fields, "title"),
+          field(fields, "author"),
+          integer(fields, "publishedAt"),
+          field(fields, "publisher"),
+          field(fields, "language"),
+          integer(fields, "pages"),
+          field(fields, "description"),
+          null
+      ));
+    } catch (NumberFormatException e) {
+      return ImportRow.invalid(rowNumber, "Invalid number " + e.getMessage());
+    }
+  }
+
+  private String field(List<String> fields, String column) {
+    Integer index = columns.get(column);
+    return index != null && index < fields.size() ? fields.get(index) : null;
+  }
+
+  private Integer integer(List<String> fields, String column) {
+    String value = field(fields, column);
+    return value == null || value.isBlank() ? null : Integer.valueOf(value.trim());
+  }
+
+  /**
+   * Splits a record into its fields, null if the record ends inside a quoted field.
+   */
+  private static List<String> split(CharSequence record) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < record.length(); i++) {
+      char c = record.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c != '\r') {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
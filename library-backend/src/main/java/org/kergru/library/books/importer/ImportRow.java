@@ -0,0 +1,21 @@
+package org.kergru.library.books.importer;
+
+import org.kergru.library.model.BookDto;
+
+/**
+ * A row of an import, either a parsed book or the reason why the row could not be parsed.
+ *
+ * @param number number of the row in the import, starting with 1
+ * @param book   parsed book, null if the row is invalid
+ * @param error  reason why the row is invalid, null if it was parsed
+ */
+record ImportRow(long number, BookDto book, String error) {
+
+  static ImportRow of(long number, BookDto book) {
+    return new ImportRow(number, book, null);
+  }
+
+  static ImportRow invalid(long number, String error) {
+    return new ImportRow(number, null, error);
+  }
+}
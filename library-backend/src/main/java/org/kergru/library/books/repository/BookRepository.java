@@ -1,17 +1,14 @@
 package org.kergru.library.books.repository;
 
+import java.util.Collection;
 import org.kergru.library.model.BookDto;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
-import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface BookRepository extends ReactiveCrudRepository<BookDto, Long> {
+public interface BookRepository extends ReactiveCrudRepository<BookDto, Long>, BookRepositoryCustom {
 
   @Query("""
         SELECT
@@ -37,45 +34,47 @@ public interface BookRepository extends ReactiveCrudRepository<BookDto, Long> {
     SELECT b.*, l.id AS loan_id, l.borrowed_at AS borrowed_at, l.user_id AS borrower_id
     FROM books b
     LEFT JOIN loans l ON b.id = l.book_id AND l.returned_at IS NULL
-    WHERE 
-        (:searchString IS NULL OR 
-         b.title LIKE CONCAT('%', :searchString, '%') OR 
-         b.author LIKE CONCAT('%', :searchString, '%') OR 
-         b.isbn LIKE CONCAT('%', :searchString, '%'))
-    ORDER BY 
-        CASE WHEN :sortBy = 'title' THEN b.title END ASC,
-        CASE WHEN :sortBy = 'author' THEN b.author END ASC,
-        CASE WHEN :sortBy = 'isbn' THEN b.isbn END ASC
-    LIMIT :size OFFSET :offset
+    WHERE b.id IN (:ids)
     """)
-  Flux<BookWithLoanProjection> searchBooksWithJoinLoans(
-      @Param("searchString") String searchString,
-      @Param("size") int size,
-      @Param("offset") long offset,
-      @Param("sortBy") String sortBy
-  );
+  Flux<BookWithLoanProjection> findAllByIdWithJoinLoans(@Param("ids") Collection<Long> ids);
 
   @Query("""
-    SELECT COUNT(b.id) FROM books b
-    WHERE 
-        (:searchString IS NULL OR 
-         b.title LIKE CONCAT('%', :searchString, '%') OR 
-         b.author LIKE CONCAT('%', :searchString, '%') OR 
-         b.isbn LIKE CONCAT('%', :searchString, '%'))
+    SELECT b.*, l.id AS loan_id, l.borrowed_at AS borrowed_at, l.user_id AS borrower_id
+    FROM books b
+    LEFT JOIN loans l ON b.id = l.book_id AND l.returned_at IS NULL
+    WHERE b.isbn IN (:isbns)
     """)
-  Mono<Long> countBooks(@Param("searchString") String searchString);
+  Flux<BookWithLoanProjection> findAllByIsbnWithJoinLoans(@Param("isbns") Collection<String> isbns);
 
-  default Mono<Page<BookWithLoanProjection>> searchBooksPaged(String searchString, int page, int size, String sortBy) {
-    String search = StringUtils.hasText(searchString) ? searchString : null;
-    long offset = (long) page * size;
+  /**
+   * Streams the searchable columns of all books, used to build the in-memory search index.
+   */
+  @Query("""
+    SELECT b.id, b.isbn, b.title, b.author
+    FROM books b
+    """)
+  Flux<BookEntity> findAllForSearchIndex();
 
-    return searchBooksWithJoinLoans(search, size, offset, sortBy)
-        .collectList()
-        .zipWith(countBooks(search))
-        .map(tuple -> new PageImpl<>(
-            tuple.getT1(),
-            PageRequest.of(page, size),
-            tuple.getT2()
-        ));
-  }
+  /**
+   * Searchable columns of the books with the given isbns, used to update the search index after an import.
+   */
+  @Query("""
+    SELECT b.id, b.isbn, b.title, b.author
+    FROM books b
+    WHERE b.isbn IN (:isbns)
+    """)
+  Flux<BookEntity> findAllForSearchIndexByIsbn(@Param("isbns") Collection<String> isbns);
+
+  /**
+   * Next chunk of all books with loan status in id order, used to walk the whole catalogue with a keyset.
+   */
+  @Query("""
+    SELECT b.*, l.id AS loan_id, l.borrowed_at AS borrowed_at, l.user_id AS borrower_id
+    FROM books b
+    LEFT JOIN loans l ON b.id = l.book_id AND l.returned_at IS NULL
+    WHERE b.id > :afterId
+    ORDER BY b.id
+    LIMIT :limit
+    """)
+  Flux<BookWithLoanProjection> findAllWithJoinLoansAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
 }
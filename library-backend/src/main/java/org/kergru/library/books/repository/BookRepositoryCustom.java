@@ -0,0 +1,51 @@
+package org.kergru.library.books.repository;
+
+import java.util.List;
+import org.springframework.data.domain.Sort.Direction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Book searches that are built per sort field and direction at runtime instead of being declared with {@code @Query}.
+ * A null search string matches all books.
+ */
+public interface BookRepositoryCustom {
+
+  /**
+   * Returns up to {@code limit} books ordered by the sort field and id, skipping the first {@code offset} books.
+   */
+  Flux<BookWithLoanProjection> searchBooks(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      long offset,
+      int limit
+  );
+
+  /**
+   * Keyset (seek) search: returns up to {@code limit} books ordered by the sort field and id that come after the given
+   * position, or the first books if {@code afterId} is null. The cost does not grow with the position in the result.
+   */
+  Flux<BookWithLoanProjection> searchBooksAfter(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      String afterValue,
+      Long afterId,
+      int limit
+  );
+
+  Mono<Long> countBooks(String searchString);
+
+  /**
+   * Inserts the books, or updates the book with the same isbn if there is one, with one multi-row statement.
+   *
+   * @return number of affected rows as reported by MySQL: 1 per inserted, 2 per updated and 0 per unchanged book
+   */
+  Mono<Long> upsertBooks(List<BookEntity> books);
+
+  /**
+   * Estimated number of all books from the table statistics, without counting.
+   */
+  Mono<Long> estimateBookCount();
+}
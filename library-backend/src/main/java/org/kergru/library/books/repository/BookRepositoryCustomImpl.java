@@ -0,0 +1,157 @@
+package org.kergru.library.books.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.kergru.library.paging.SearchStatements;
+import org.kergru.library.paging.SearchStatements.Paging;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+  static final SearchStatements STATEMENTS = new SearchStatements(
+      """
+          SELECT b.*, l.id AS loan_id, l.borrowed_at AS borrowed_at, l.user_id AS borrower_id
+          FROM books b
+          LEFT JOIN loans l ON b.id = l.book_id AND l.returned_at IS NULL""",
+      """
+          SELECT COUNT(b.id) FROM books b""",
+      """
+          (b.title LIKE CONCAT('%', :searchString, '%') OR
+           b.author LIKE CONCAT('%', :searchString, '%') OR
+           b.isbn LIKE CONCAT('%', :searchString, '%'))""",
+      "b.id",
+      Map.of(
+          "title", "b.title",
+          "author", "b.author",
+          "isbn", "b.isbn"
+      ),
+      "title"
+  );
+
+  private final R2dbcEntityTemplate template;
+
+  /**
+   * Upsert statements by number of rows, import batches mostly have the same size.
+   */
+  private final Map<Integer, String> upsertStatements = new ConcurrentHashMap<>();
+
+  BookRepositoryCustomImpl(R2dbcEntityTemplate template) {
+    this.template = template;
+  }
+
+  @Override
+  public Flux<BookWithLoanProjection> searchBooks(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      long offset,
+      int limit
+  ) {
+    String sql = STATEMENTS.search(sortBy, direction, searchString != null, Paging.OFFSET);
+    return query(sql, searchString)
+        .bind("limit", limit)
+        .bind("offset", offset)
+        .map((row, metadata) -> template.getConverter().read(BookWithLoanProjection.class, row, metadata))
+        .all();
+  }
+
+  @Override
+  public Flux<BookWithLoanProjection> searchBooksAfter(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      String afterValue,
+      Long afterId,
+      int limit
+  ) {
+    if (afterId == null) {
+      return searchBooks(searchString, sortBy, direction, 0, limit);
+    }
+    String sql = STATEMENTS.search(sortBy, direction, searchString != null, Paging.KEYSET);
+    return query(sql, searchString)
+        .bind("limit", limit)
+        .bind("afterValue", afterValue)
+        .bind("afterId", afterId)
+        .map((row, metadata) -> template.getConverter().read(BookWithLoanProjection.class, row, metadata))
+        .all();
+  }
+
+  @Override
+  public Mono<Long> countBooks(String searchString) {
+    return query(STATEMENTS.count(searchString != null), searchString)
+        .map(row -> row.get(0, Long.class))
+        .one();
+  }
+
+  @Override
+  public Mono<Long> estimateBookCount() {
+    return template.getDatabaseClient()
+        .sql("""
+            SELECT CAST(COALESCE(TABLE_ROWS, 0) AS SIGNED) FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'""")
+        .map(row -> row.get(0, Long.class))
+        .one();
+  }
+
+  @Override
+  public Mono<Long> upsertBooks(List<BookEntity> books) {
+    if (books.isEmpty()) {
+      return Mono.just(0L);
+    }
+    GenericExecuteSpec spec = template.getDatabaseClient()
+        .sql(upsertStatements.computeIfAbsent(books.size(), BookRepositoryCustomImpl::upsertStatement));
+    for (int i = 0; i < books.size(); i++) {
+      BookEntity book = books.get(i);
+      spec = spec
+          .bind("isbn" + i, book.isbn)
+          .bind("title" + i, book.title)
+          .bind("author" + i, book.author)
+          .bind("publishedAt" + i, book.publishedAt)
+          .bind("publisher" + i, book.publisher)
+          .bind("language" + i, book.language)
+          .bind("description" + i, book.description)
+          .bind("pages" + i, book.pages);
+    }
+    return spec.fetch().rowsUpdated();
+  }
+
+  private static String upsertStatement(int rows) {
+    StringBuilder sql = new StringBuilder(
+        "INSERT INTO books (isbn, title, author, published_at, publisher, language, description, pages)\nVALUES ");
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sql.append(",\n       ");
+      }
+      sql.append("(:isbn").append(i)
+          .append(", :title").append(i)
+          .append(", :author").append(i)
+          .append(", :publishedAt").append(i)
+          .append(", :publisher").append(i)
+          .append(", :language").append(i)
+          .append(", :description").append(i)
+          .append(", :pages").append(i)
+          .append(')');
+    }
+    return sql.append("""
+
+        AS new
+        ON DUPLICATE KEY UPDATE
+            title = new.title,
+            author = new.author,
+            published_at = new.published_at,
+            publisher = new.publisher,
+            language = new.language,
+            description = new.description,
+            pages = new.pages""").toString();
+  }
+
+  private GenericExecuteSpec query(String sql, String searchString) {
+    GenericExecuteSpec spec = template.getDatabaseClient().sql(sql);
+    return searchString != null ? spec.bind("searchString", searchString) : spec;
+  }
+}
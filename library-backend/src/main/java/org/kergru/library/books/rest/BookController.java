@@ -1,49 +1,176 @@
 package org.kergru.library.books.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.function.Supplier;
+import org.kergru.library.books.export.BookExportWriter;
+import org.kergru.library.books.export.ExportFormat;
+import org.kergru.library.books.importer.BookImporter;
 import org.kergru.library.books.service.BookService;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
+import org.kergru.library.model.ImportBatchResultDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.paging.CountMode;
+import org.kergru.library.security.LibraryPrincipal;
+import org.kergru.library.web.ConditionalGet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
-@RequestMapping("/library/books")
+@RequestMapping("/library")
 public class BookController {
 
   private final BookService bookService;
 
-  public BookController(BookService bookService) {
+  private final BookExportWriter exportWriter;
+
+  private final BookImporter bookImporter;
+
+  private final ObjectMapper objectMapper;
+
+  private final boolean searchETag;
+
+  public BookController(BookService bookService, BookExportWriter exportWriter, BookImporter bookImporter,
+      ObjectMapper objectMapper, @Value("${library.books.search.etag:true}") boolean searchETag) {
     this.bookService = bookService;
+    this.exportWriter = exportWriter;
+    this.bookImporter = bookImporter;
+    this.objectMapper = objectMapper;
+    this.searchETag = searchETag;
   }
 
   /**
-   * Returns paged search result of books by title, author, isbn
+   * Returns paged search result of books by title, author, isbn.
+   * Sorted by sortBy in direction ASC or DESC, ties are ordered by id.
+   * Pages are addressed by page number or, for deep pages, by the nextCursor of the previous page.
+   * countMode EXACT (default), ESTIMATED or NONE decides how totalElements and totalPages are determined.
+   * The ETag is the catalogue version, a matching If-None-Match is answered with 304 without running the search, after
+   * the parameters have been validated. The catalogue version only knows the loans of this instance, so the ETag is
+   * disabled with library.books.search.etag=false when several instances serve the same database.
    */
-  @PreAuthorize("isAuthenticated()")
-  @GetMapping()
+  @GetMapping("/books")
   public Mono<PageResponseDto<BookDto>> searchBooks(
       @RequestParam(required = false) String searchString,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "title") String sortBy
+      @RequestParam(defaultValue = "title") String sortBy,
+      @RequestParam(defaultValue = "ASC") Direction direction,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "EXACT") CountMode countMode,
+      ServerWebExchange exchange
+  ) {
+    Supplier<Mono<PageResponseDto<BookDto>>> search =
+        () -> bookService.searchBooks(searchString, page, size, sortBy, direction, cursor, countMode);
+    return Mono.fromRunnable(() -> bookService.validateSearch(page, size, sortBy, direction, cursor))
+        .then(searchETag
+            ? ConditionalGet.withETag(exchange, ConditionalGet.weak("books", bookService.catalogueVersion()), search)
+            : Mono.defer(search))
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
+  /**
+   * Streams the books of a search result page as NDJSON or server-sent events, without totals.
+   * The nextCursor of a paged search can be used to continue.
+   */
+  @GetMapping(value = "/books", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+  public Flux<BookDto> streamBooks(
+      @RequestParam(required = false) String searchString,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "title") String sortBy,
+      @RequestParam(defaultValue = "ASC") Direction direction,
+      @RequestParam(required = false) String cursor
+  ) {
+    return bookService.streamBooks(searchString, page, size, sortBy, direction, cursor)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
+  /**
+   * Exports the whole catalogue with current loan status as NDJSON (default) or CSV, optionally gzip compressed.
+   * Only accessible by the librarian.
+   */
+  @GetMapping("/books/export")
+  public Mono<ResponseEntity<Flux<DataBuffer>>> exportBooks(
+      @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      LibraryPrincipal principal
   ) {
-    return bookService.searchBooks(searchString, page, size, sortBy);
+    principal.requireLibrarian();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(format.mediaType());
+    headers.setContentDisposition(ContentDisposition.attachment()
+        .filename("books." + format.fileExtension() + (gzip ? ".gz" : ""))
+        .build());
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return Mono.just(ResponseEntity.ok()
+        .headers(headers)
+        .body(exportWriter.write(bookService.exportBooks(), format, gzip)));
+  }
+
+  /**
+   * Imports books from an NDJSON body of books, inserting new and updating existing books by ISBN.
+   * The body is processed in batches while it is received, a result is streamed back per batch.
+   * Only accessible by the librarian.
+   */
+  @PostMapping(value = "/books/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ImportBatchResultDto> importBooks(@RequestBody Flux<BookDto> books, LibraryPrincipal principal) {
+    principal.requireLibrarian();
+
+    return bookImporter.importBooks(books);
+  }
+
+  /**
+   * Imports books from a CSV body with header, in the columns of the export, like the NDJSON import.
+   * Only accessible by the librarian.
+   */
+  @PostMapping(value = "/books/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ImportBatchResultDto> importBooksCsv(@RequestBody Flux<String> lines, LibraryPrincipal principal) {
+    principal.requireLibrarian();
+
+    return bookImporter.importCsv(lines)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
+  /**
+   * Looks up to 100 books by ISBN in one request. The result contains one element per ISBN in request order, with
+   * status 200 and the book, or status 404 if there is no book with the ISBN.
+   */
+  @PostMapping("/books:lookup")
+  public Flux<BookLookupResultDto> lookupBooks(@RequestBody List<String> isbns) {
+    return bookService.lookupBooks(isbns)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
   }
 
   /**
-   * Returns a single book by ISBN
+   * Returns a single book by ISBN.
+   * The ETag is derived from book and loan status, a matching If-None-Match is answered with 304.
    */
-  @PreAuthorize("isAuthenticated()")
-  @GetMapping("/{isbn}")
-  public Mono<BookDto> getBook(@PathVariable String isbn) {
-    return bookService.findByIsbn(isbn)
-        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found")));
+  @GetMapping("/books/{isbn}")
+  public Mono<BookDto> getBook(@PathVariable String isbn, ServerWebExchange exchange) {
+    return ConditionalGet.withETag(exchange, bookService.findByIsbn(isbn)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found"))),
+        book -> ConditionalGet.ofContent("book", book, objectMapper));
   }
 }
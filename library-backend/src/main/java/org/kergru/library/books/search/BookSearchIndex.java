@@ -0,0 +1,377 @@
+package org.kergru.library.books.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.kergru.library.books.repository.BookEntity;
+import org.kergru.library.books.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over title, author and isbn of all books.
+ *
+ * <p>Every field is split into lower-case word tokens. A search string matches a book if each of its tokens is a prefix
+ * of at least one token of the book, so "clean arch" finds "Clean Architecture" and "martin" finds "Robert C. Martin".
+ * Prefix lookups are range scans on a sorted token dictionary, so no search ever touches the database.
+ *
+ * <p>The matches of a search are collected and sorted once per search string, sort field and direction, further
+ * pages of the same search slice the cached list, so deep pages cost as much as the first. Every change of the index
+ * starts a new generation, lists sorted for an older generation are not used any more.
+ *
+ * <p>The index is built asynchronously once the application is ready and is kept current through {@link #index} and
+ * {@link #remove}. Until it is ready, callers are expected to fall back to the SQL search.
+ */
+@Component
+public class BookSearchIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  /**
+   * Sort fields of {@link #search}, "relevance" is only known to the index.
+   */
+  public static final Set<String> SORT_FIELDS = Set.of("title", "author", "isbn", "relevance");
+
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  private final BookRepository bookRepository;
+
+  private final boolean enabled;
+
+  private final NavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+
+  private final Map<Long, IndexedBook> documents = new ConcurrentHashMap<>();
+
+  /**
+   * Sorted matches of recent searches, weighed by their number of hits.
+   */
+  private final Cache<HitsKey, SortedHits> sortedHits;
+
+  /**
+   * Incremented after every change of the index.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  private volatile boolean ready;
+
+  public BookSearchIndex(
+      BookRepository bookRepository,
+      @Value("${library.books.search.index.enabled:true}") boolean enabled,
+      @Value("${library.books.search.index.cache.max-hits:2000000}") long maxCachedHits) {
+    this.bookRepository = bookRepository;
+    this.enabled = enabled;
+    this.sortedHits = Caffeine.newBuilder()
+        .maximumWeight(maxCachedHits)
+        .weigher((HitsKey key, SortedHits value) -> value.hits().size())
+        .build();
+  }
+
+  /**
+   * Loads all books into the index, the SQL search is used until loading has completed.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    if (!enabled) {
+      return;
+    }
+    long start = System.nanoTime();
+    bookRepository.findAllForSearchIndex()
+        .doOnNext(this::index)
+        .then()
+        .subscribe(
+            done -> { },
+            err -> logger.error("Building book search index failed, falling back to SQL search", err),
+            () -> {
+              ready = true;
+              logger.info("Book search index built with {} books in {} ms",
+                  documents.size(), (System.nanoTime() - start) / 1_000_000);
+            });
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Adds a book to the index or replaces the indexed version of it.
+   */
+  public void index(BookEntity book) {
+    IndexedBook doc = new IndexedBook(book.id, book.isbn, book.title, book.author, sortKey(book.title),
+        sortKey(book.author), tokenize(book.title), tokenize(book.author), tokenize(book.isbn));
+
+    IndexedBook previous = documents.put(book.id, doc);
+    if (previous != null) {
+      previous.allTokens().forEach(token -> removePosting(token, book.id));
+    }
+    doc.allTokens().forEach(token -> postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(book.id));
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Removes a book from the index.
+   */
+  public void remove(Long bookId) {
+    IndexedBook previous = documents.remove(bookId);
+    if (previous != null) {
+      previous.allTokens().forEach(token -> removePosting(token, bookId));
+      generation.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the requested slice of all books matching the search string, ordered by the given sort field and id.
+   * Sorting by "relevance" ranks isbn and title matches above author matches and exact tokens above prefixes.
+   */
+  public SearchResult search(String searchString, String sortBy, long offset, int limit) {
+    return search(searchString, sortBy, Direction.ASC, offset, limit);
+  }
+
+  /**
+   * Like {@link #search(String, String, long, int)} in the given direction. Relevance is always ranked best first.
+   */
+  public SearchResult search(String searchString, String sortBy, Direction direction, long offset, int limit) {
+    List<Hit> hits = sortedHits(searchString, sortBy, direction);
+    return slice(hits, (int) Math.min(offset, hits.size()), limit, sortBy);
+  }
+
+  /**
+   * Returns up to {@code limit} matching books that come after the given position in the order of the sort field.
+   */
+  public SearchResult searchAfter(String searchString, String sortBy, String afterValue, Long afterId, int limit) {
+    return searchAfter(searchString, sortBy, Direction.ASC, afterValue, afterId, limit);
+  }
+
+  /**
+   * Like {@link #searchAfter(String, String, String, Long, int)} in the given direction.
+   */
+  public SearchResult searchAfter(String searchString, String sortBy, Direction direction, String afterValue,
+      Long afterId, int limit) {
+    List<Hit> hits = sortedHits(searchString, sortBy, direction);
+    Hit probe = probe(sortBy, afterValue, afterId);
+    int position = Collections.binarySearch(hits, probe, comparator(sortBy, direction));
+    int from = position >= 0 ? position + 1 : -position - 1;
+    return slice(hits, from, limit, sortBy);
+  }
+
+  private List<Hit> sortedHits(String searchString, String sortBy, Direction direction) {
+    List<String> queryTokens = tokenize(searchString);
+    if (queryTokens.isEmpty()) {
+      return List.of();
+    }
+
+    HitsKey key = new HitsKey(queryTokens.stream().sorted().toList(), sortField(sortBy),
+        "relevance".equals(sortBy) ? Direction.ASC : direction);
+    long current = generation.get();
+    SortedHits cached = sortedHits.getIfPresent(key);
+    if (cached != null && cached.generation() == current) {
+      return cached.hits();
+    }
+    List<Hit> hits = Collections.unmodifiableList(collectHits(queryTokens, sortBy, direction));
+    sortedHits.put(key, new SortedHits(current, hits));
+    return hits;
+  }
+
+  private List<Hit> collectHits(List<String> queryTokens, String sortBy, Direction direction) {
+    Set<Long> matches = null;
+    for (String queryToken : queryTokens) {
+      Set<Long> candidates = new HashSet<>();
+      postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true)
+          .values()
+          .forEach(candidates::addAll);
+      if (matches == null) {
+        matches = candidates;
+      } else {
+        matches.retainAll(candidates);
+      }
+      if (matches.isEmpty()) {
+        return List.of();
+      }
+    }
+
+    boolean scored = "relevance".equals(sortBy);
+    List<Hit> hits = new ArrayList<>(matches.size());
+    for (Long id : matches) {
+      IndexedBook doc = documents.get(id);
+      if (doc != null) {
+        hits.add(new Hit(doc, scored ? doc.score(queryTokens) : 0));
+      }
+    }
+    hits.sort(comparator(sortBy, direction));
+    return hits;
+  }
+
+  private static SearchResult slice(List<Hit> hits, int from, int limit, String sortBy) {
+    List<SearchHit> page = hits.subList(from, Math.min(hits.size(), from + limit)).stream()
+        .map(hit -> new SearchHit(hit.doc().id(), hit.sortValue(sortBy)))
+        .toList();
+    return new SearchResult(hits.size(), page);
+  }
+
+  private static Hit probe(String sortBy, String value, Long id) {
+    if ("relevance".equals(sortBy)) {
+      try {
+        return new Hit(new IndexedBook(id, "", "", "", "", "", List.of(), List.of(), List.of()),
+            Integer.parseInt(value));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+    }
+    return new Hit(new IndexedBook(id, value, value, value, sortKey(value), sortKey(value), List.of(), List.of(),
+        List.of()), 0);
+  }
+
+  private static Comparator<Hit> comparator(String sortBy, Direction direction) {
+    if ("relevance".equals(sortBy) || direction.isAscending()) {
+      return comparator(sortBy);
+    }
+    return comparator(sortBy).reversed();
+  }
+
+  private static Comparator<Hit> comparator(String sortBy) {
+    Comparator<Hit> byId = Comparator.comparing(hit -> hit.doc().id());
+    return switch (sortField(sortBy)) {
+      case "author" -> Comparator.comparing((Hit hit) -> hit.doc().authorKey()).thenComparing(byId);
+      case "isbn" -> Comparator.comparing((Hit hit) -> hit.doc().isbn()).thenComparing(byId);
+      case "relevance" -> Comparator.comparingInt(Hit::score).reversed().thenComparing(byId);
+      default -> Comparator.comparing((Hit hit) -> hit.doc().titleKey()).thenComparing(byId);
+    };
+  }
+
+  /**
+   * Known sort field for the given name, title for unknown names like the SQL search.
+   */
+  private static String sortField(String sortBy) {
+    return sortBy != null && SORT_FIELDS.contains(sortBy) ? sortBy : "title";
+  }
+
+  /**
+   * Sort key of a title or author. The SQL search orders by the utf8mb4_unicode_ci collation, which ignores case and
+   * accents, the key does the same by decomposing and dropping combining marks. Expansions of the collation such as
+   * "ß" equal to "ss" are not covered, titles with such letters may be ordered differently than by the SQL search.
+   */
+  static String sortKey(String value) {
+    if (value == null) {
+      return "";
+    }
+    return COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("")
+        .toLowerCase(Locale.ROOT);
+  }
+
+  private void removePosting(String token, Long bookId) {
+    postings.computeIfPresent(token, (t, ids) -> {
+      ids.remove(bookId);
+      return ids.isEmpty() ? null : ids;
+    });
+  }
+
+  static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) {
+      return List.of();
+    }
+    return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+        .filter(token -> !token.isEmpty())
+        .distinct()
+        .toList();
+  }
+
+  /**
+   * Slice of a search result.
+   *
+   * @param total number of all matching books
+   * @param hits  matching books of the slice in result order
+   */
+  public record SearchResult(int total, List<SearchHit> hits) {
+
+  }
+
+  /**
+   * Matching book with the value of the sort field it was ordered by.
+   */
+  public record SearchHit(Long id, String sortValue) {
+
+  }
+
+  private record HitsKey(List<String> queryTokens, String sortBy, Direction direction) {
+
+  }
+
+  private record SortedHits(long generation, List<Hit> hits) {
+
+  }
+
+  private record Hit(IndexedBook doc, int score) {
+
+    String sortValue(String sortBy) {
+      return switch (sortField(sortBy)) {
+        case "author" -> doc.author();
+        case "isbn" -> doc.isbn();
+        case "relevance" -> String.valueOf(score);
+        default -> doc.title();
+      };
+    }
+  }
+
+  private record IndexedBook(
+      Long id,
+      String isbn,
+      String title,
+      String author,
+      String titleKey,
+      String authorKey,
+      List<String> titleTokens,
+      List<String> authorTokens,
+      List<String> isbnTokens
+  ) {
+
+    Set<String> allTokens() {
+      Set<String> tokens = new HashSet<>(titleTokens);
+      tokens.addAll(authorTokens);
+      tokens.addAll(isbnTokens);
+      return tokens;
+    }
+
+    int score(List<String> queryTokens) {
+      int score = 0;
+      for (String queryToken : queryTokens) {
+        score += Math.max(
+            Math.max(match(isbnTokens, queryToken, 8), match(titleTokens, queryToken, 4)),
+            match(authorTokens, queryToken, 2));
+      }
+      return score;
+    }
+
+    private static int match(List<String> tokens, String queryToken, int weight) {
+      int best = 0;
+      for (String token : tokens) {
+        if (token.equals(queryToken)) {
+          return weight;
+        }
+        if (token.startsWith(queryToken)) {
+          best = weight / 2;
+        }
+      }
+      return best;
+    }
+  }
+}
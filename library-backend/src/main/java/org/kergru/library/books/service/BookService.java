@@ -1,44 +1,277 @@
 package org.kergru.library.books.service;
 
-import java.util.stream.Collectors;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import org.kergru.library.books.cache.BookCache;
 import org.kergru.library.books.repository.BookRepository;
 import org.kergru.library.books.repository.BookWithLoanProjection;
+import org.kergru.library.books.search.BookSearchIndex;
+import org.kergru.library.books.search.BookSearchIndex.SearchHit;
+import org.kergru.library.books.search.BookSearchIndex.SearchResult;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
 import org.kergru.library.model.LoanStatusDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.paging.CountCache;
+import org.kergru.library.paging.CountMode;
+import org.kergru.library.paging.PageCursor;
+import org.kergru.library.paging.PageResponses;
+import org.kergru.library.reactive.SingleFlight;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
 public class BookService {
 
+  /**
+   * Number of books loaded per query when streaming the books found by the search index.
+   */
+  private static final int STREAM_CHUNK_SIZE = 100;
+
+  /**
+   * Number of books read per query when exporting the catalogue.
+   */
+  private static final int EXPORT_CHUNK_SIZE = 1000;
+
+  /**
+   * Maximum number of isbns in one lookup.
+   */
+  private static final int MAX_LOOKUP_SIZE = 100;
+
   private final BookRepository bookRepository;
 
-  public BookService(BookRepository bookRepository) {
+  private final BookSearchIndex searchIndex;
+
+  private final CountCache countCache;
+
+  private final BookCache bookCache;
+
+  /**
+   * Concurrent reads of the same isbn share one read.
+   */
+  private final SingleFlight<String, BookDto> bookReads = new SingleFlight<>();
+
+  public BookService(BookRepository bookRepository, BookSearchIndex searchIndex, CountCache countCache,
+      BookCache bookCache, MeterRegistry meterRegistry) {
     this.bookRepository = bookRepository;
+    this.searchIndex = searchIndex;
+    this.countCache = countCache;
+    this.bookCache = bookCache;
+
+    FunctionCounter.builder("library.singleflight.executed", bookReads, SingleFlight::executed)
+        .description("Reads started")
+        .tag("name", "book-by-isbn")
+        .register(meterRegistry);
+    FunctionCounter.builder("library.singleflight.coalesced", bookReads, SingleFlight::coalesced)
+        .description("Reads that joined a read in flight")
+        .tag("name", "book-by-isbn")
+        .register(meterRegistry);
+    Gauge.builder("library.singleflight.in-flight", bookReads, SingleFlight::inFlight)
+        .tag("name", "book-by-isbn")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Searches books by title, author and isbn, ordered by the sort field in the given direction. Searches with a search
+   * string are answered by the in-memory search index once it is ready, everything else by the database.
+   *
+   * <p>Without a cursor the requested page is addressed by its number. With a cursor taken from the
+   * {@code nextCursor} of a previous page, the page is located by seeking past the last element of that page instead.
+   * The count mode decides how the totals are determined for database searches, the search index always knows them.
+   * The sort field "relevance" is only known to the search index, the database orders such searches by title.
+   *
+   * @throws IllegalArgumentException (as error signal) if page, size, sort field or cursor are invalid
+   */
+  public Mono<PageResponseDto<BookDto>> searchBooks(String searchStr, int page, int size, String sortBy,
+      Direction direction, String cursor, CountMode countMode) {
+
+    return Mono.defer(() -> {
+      String search = StringUtils.hasText(searchStr) ? searchStr.trim() : null;
+      PageCursor after = decodeCursor(page, size, sortBy, direction, cursor);
+
+      if (search != null && searchIndex.isReady()) {
+        return searchIndexed(search, page, size, sortBy, direction, after);
+      }
+
+      int pageNumber = after != null ? after.page() : page;
+      long offset = (long) pageNumber * size;
+      Flux<BookWithLoanProjection> rows = after != null
+          ? bookRepository.searchBooksAfter(search, sortBy, direction, after.value(), after.id(), size + 1)
+          : bookRepository.searchBooks(search, sortBy, direction, offset, size + 1);
+
+      return rows.collectList()
+          .zipWith(total(search, countMode).defaultIfEmpty(PageResponses.UNCOUNTED))
+          .map(tuple -> {
+            List<BookWithLoanProjection> content = tuple.getT1();
+            long total = countMode == CountMode.ESTIMATED
+                ? Math.max(tuple.getT2(), PageResponses.lowerBound(offset, content))
+                : tuple.getT2();
+            return PageResponses.of(content, pageNumber, size, total, BookService::toDto,
+                last -> nextCursor(last, pageNumber, sortBy, direction));
+          });
+    });
   }
 
-  public Mono<PageResponseDto<BookDto>> searchBooks(String searchStr, int page, int size, String sortBy) {
+  /**
+   * Streams the books of a page like {@link #searchBooks}, without count and page envelope. Books are emitted as the
+   * database returns them instead of being collected first.
+   *
+   * @throws IllegalArgumentException (as error signal) if page, size, sort field or cursor are invalid
+   */
+  public Flux<BookDto> streamBooks(String searchStr, int page, int size, String sortBy, Direction direction,
+      String cursor) {
+
+    return Flux.defer(() -> {
+      String search = StringUtils.hasText(searchStr) ? searchStr.trim() : null;
+      PageCursor after = decodeCursor(page, size, sortBy, direction, cursor);
+
+      if (search != null && searchIndex.isReady()) {
+        SearchResult result = after != null
+            ? searchIndex.searchAfter(search, sortBy, direction, after.value(), after.id(), size)
+            : searchIndex.search(search, sortBy, direction, (long) page * size, size);
+        return Flux.fromIterable(result.hits())
+            .map(SearchHit::id)
+            .buffer(STREAM_CHUNK_SIZE)
+            .concatMap(ids -> bookRepository.findAllByIdWithJoinLoans(ids)
+                .collectMap(BookWithLoanProjection::getId)
+                .flatMapIterable(byId -> ids.stream().map(byId::get).filter(Objects::nonNull).toList()))
+            .map(BookService::toDto);
+      }
+
+      Flux<BookWithLoanProjection> rows = after != null
+          ? bookRepository.searchBooksAfter(search, sortBy, direction, after.value(), after.id(), size)
+          : bookRepository.searchBooks(search, sortBy, direction, (long) page * size, size);
+      return rows.map(BookService::toDto);
+    });
+  }
 
-    return bookRepository.searchBooksPaged(searchStr, page, size, sortBy)
-        .map(p -> new PageResponseDto<>(
-            p.getContent().stream().map(this::toDto).collect(Collectors.toList()),
-            p.getNumber(),
-            p.getSize(),
-            p.getTotalPages(),
-            p.getTotalElements(),
-            p.isFirst(),
-            p.isLast(),
-            p.getNumberOfElements(),
-            p.isEmpty()
-        ));
+  /**
+   * Streams the whole catalogue with loan status in id order. The books are read in chunks, each chunk continuing after
+   * the last id of the previous one, so neither memory nor the cost per chunk grows with the catalogue. Only one chunk
+   * is read ahead of the chunk being written, a slow client holds back the reads.
+   */
+  public Flux<BookDto> exportBooks() {
+    return bookRepository.findAllWithJoinLoansAfterId(0L, EXPORT_CHUNK_SIZE).collectList()
+        .expand(chunk -> chunk.size() < EXPORT_CHUNK_SIZE
+            ? Mono.empty()
+            : bookRepository.findAllWithJoinLoansAfterId(chunk.getLast().getId(), EXPORT_CHUNK_SIZE).collectList())
+        .concatMapIterable(chunk -> chunk, 1)
+        .map(BookService::toDto);
   }
 
+  /**
+   * Validates the paging parameters of a search like {@link #searchBooks} does, for callers that answer from a cache
+   * before searching.
+   *
+   * @throws IllegalArgumentException if page, size, sort field or cursor are invalid
+   */
+  public void validateSearch(int page, int size, String sortBy, Direction direction, String cursor) {
+    decodeCursor(page, size, sortBy, direction, cursor);
+  }
+
+  /**
+   * Version of the catalogue including loan status, changes whenever search results may have changed through this
+   * instance, see {@link BookCache#catalogueVersion()}.
+   */
+  public String catalogueVersion() {
+    return bookCache.catalogueVersion();
+  }
+
+  /**
+   * Book with current loan status, concurrent reads of the same isbn are coalesced into one.
+   */
   public Mono<BookDto> findByIsbn(String isbn) {
-    return bookRepository.findByIsbn(isbn).map(this::toDto);
+    return bookReads.execute(isbn, () -> bookCache.findByIsbn(isbn));
+  }
+
+  /**
+   * Looks up several books by isbn. Books missing in the cache are read with one query joining their open loans.
+   *
+   * @return one result per requested isbn in request order, with status 404 for isbns without book
+   * @throws IllegalArgumentException (as error signal) if there are too many or empty isbns
+   */
+  public Flux<BookLookupResultDto> lookupBooks(List<String> isbns) {
+    if (isbns.size() > MAX_LOOKUP_SIZE || isbns.stream().anyMatch(isbn -> isbn == null || isbn.isBlank())) {
+      return Flux.error(new IllegalArgumentException("At most " + MAX_LOOKUP_SIZE + " non-empty isbns allowed"));
+    }
+    if (isbns.isEmpty()) {
+      return Flux.empty();
+    }
+    return bookCache.findAllByIsbn(Set.copyOf(isbns))
+        .flatMapIterable(books -> isbns.stream()
+            .map(isbn -> books.containsKey(isbn)
+                ? new BookLookupResultDto(isbn, 200, books.get(isbn))
+                : new BookLookupResultDto(isbn, 404, null))
+            .toList());
+  }
+
+  private static PageCursor decodeCursor(int page, int size, String sortBy, Direction direction, String cursor) {
+    if (page < 0 || size < 1) {
+      throw new IllegalArgumentException("Page must not be negative and size must be positive");
+    }
+    if (sortBy == null || !BookSearchIndex.SORT_FIELDS.contains(sortBy)) {
+      throw new IllegalArgumentException("sortBy must be one of " + BookSearchIndex.SORT_FIELDS);
+    }
+    return StringUtils.hasText(cursor) ? PageCursor.decode(cursor, sortBy, direction) : null;
+  }
+
+  /**
+   * Resolves the ranked ids of the requested page from the search index and loads those books in one keyed query.
+   */
+  private Mono<PageResponseDto<BookDto>> searchIndexed(String search, int page, int size, String sortBy,
+      Direction direction, PageCursor after) {
+
+    int pageNumber = after != null ? after.page() : page;
+    SearchResult result = after != null
+        ? searchIndex.searchAfter(search, sortBy, direction, after.value(), after.id(), size + 1)
+        : searchIndex.search(search, sortBy, direction, (long) page * size, size + 1);
+    List<SearchHit> hits = result.hits();
+    List<Long> pageIds = hits.stream().map(SearchHit::id).toList();
+    Function<BookWithLoanProjection, String> nextCursor = last -> {
+      SearchHit hit = hits.get(size - 1);
+      return new PageCursor(pageNumber + 1, sortBy, direction, hit.sortValue(), hit.id()).encode();
+    };
+
+    if (pageIds.isEmpty()) {
+      return Mono.just(PageResponses.of(List.of(), pageNumber, size, result.total(), BookService::toDto, nextCursor));
+    }
+
+    return bookRepository.findAllByIdWithJoinLoans(pageIds)
+        .collectMap(BookWithLoanProjection::getId)
+        .map(byId -> pageIds.stream().map(byId::get).filter(Objects::nonNull).toList())
+        .map(content -> PageResponses.of(content, pageNumber, size, result.total(), BookService::toDto, nextCursor));
+  }
+
+  /**
+   * Total of a database search according to the count mode, empty if the count is not known.
+   */
+  private Mono<Long> total(String search, CountMode countMode) {
+    return switch (countMode) {
+      case EXACT -> countCache.exact(CountCache.BOOKS, search, () -> bookRepository.countBooks(search));
+      case ESTIMATED -> countCache.estimated(CountCache.BOOKS, search, () -> bookRepository.countBooks(search),
+          () -> search == null ? bookRepository.estimateBookCount() : Mono.empty());
+      case NONE -> Mono.empty();
+    };
+  }
+
+  static String nextCursor(BookWithLoanProjection last, int pageNumber, String sortBy, Direction direction) {
+    String value = switch (sortBy) {
+      case "author" -> last.getAuthor();
+      case "isbn" -> last.getIsbn();
+      default -> last.getTitle();
+    };
+    return new PageCursor(pageNumber + 1, sortBy, direction, value, last.getId()).encode();
   }
 
-  private BookDto toDto(BookWithLoanProjection b) {
+  static BookDto toDto(BookWithLoanProjection b) {
 
     return new BookDto(
         b.getIsbn(),
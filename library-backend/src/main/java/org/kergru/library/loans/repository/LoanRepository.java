@@ -1,5 +1,8 @@
 package org.kergru.library.loans.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
@@ -28,5 +31,50 @@ public interface LoanRepository extends ReactiveCrudRepository<LoanEntity, Long>
       """)
   Flux<LoanWithBookProjection> findByUserIdWithBook(Long userId);
 
-  Mono<Boolean> existsByBookIdAndReturnedAtIsNull(Long bookId);
+  @Query("""
+        SELECT
+            l.id AS id,
+            l.user_id AS user_id,
+            l.book_id AS book_id,
+            l.borrowed_at AS borrowed_at,
+            l.returned_at AS returned_at,
+            b.title AS title,
+            b.author AS author,
+            b.isbn AS isbn,
+            b.publisher AS publisher,
+            b.pages AS pages,
+            b.published_at AS published_at,
+            b.language AS language,
+            b.description AS description
+        FROM loans l
+        JOIN books b ON l.book_id = b.id
+        WHERE l.id IN (:loanIds)
+      """)
+  Flux<LoanWithBookProjection> findAllByIdWithBook(Collection<Long> loanIds);
+
+  /**
+   * Closes an open loan of the user.
+   *
+   * @return number of closed loans, 0 if there is no such loan, it belongs to another user or is already returned
+   */
+  @Modifying
+  @Query("""
+        UPDATE loans
+        SET returned_at = :returnedAt
+        WHERE id = :loanId AND user_id = :userId AND returned_at IS NULL
+      """)
+  Mono<Long> returnLoan(Long loanId, Long userId, Instant returnedAt);
+
+  @Query("""
+        SELECT * FROM loans
+        WHERE book_id IN (:bookIds) AND returned_at IS NULL
+      """)
+  Flux<LoanEntity> findOpenLoansByBookIds(Collection<Long> bookIds);
+
+  @Query("""
+        SELECT * FROM loans
+        WHERE book_id = :bookId AND returned_at IS NULL
+        LIMIT 1
+      """)
+  Mono<LoanEntity> findOpenLoanByBookId(Long bookId);
 }
@@ -1,17 +1,30 @@
 package org.kergru.library.loans.service;
 
+import io.r2dbc.spi.R2dbcException;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import org.kergru.library.books.repository.BookRepository;
-import org.kergru.library.books.repository.BookWithLoanProjection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.kergru.library.books.cache.BookCache;
+import org.kergru.library.books.cache.BookCache.CachedBook;
 import org.kergru.library.loans.repository.LoanEntity;
 import org.kergru.library.loans.repository.LoanRepository;
 import org.kergru.library.loans.repository.LoanWithBookProjection;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BorrowResultDto;
 import org.kergru.library.model.LoanDto;
-import org.kergru.library.users.repository.UserEntity;
-import org.kergru.library.users.repository.UserRepository;
+import org.kergru.library.model.LoanStatusDto;
+import org.kergru.library.model.ReturnResultDto;
+import org.kergru.library.users.cache.UserCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -19,92 +32,241 @@ import reactor.core.publisher.Mono;
 @Service
 public class LoanService {
 
+  private static final Logger logger = LoggerFactory.getLogger(LoanService.class);
+
+  /**
+   * Maximum number of books or loans in one batch request.
+   */
+  private static final int MAX_BATCH_SIZE = 100;
+
+  /**
+   * Maximum number of statements of one batch request running at the same time, so that a batch does not take all
+   * connections of the pool.
+   */
+  private static final int STATEMENT_CONCURRENCY = 4;
+
+  /**
+   * MySQL error code of a unique key violation.
+   */
+  private static final int ER_DUP_ENTRY = 1062;
+
+  /**
+   * Unique key allowing one open loan per book.
+   */
+  private static final String OPEN_LOAN_KEY = "uk_loans_open_book";
+
   private final LoanRepository loanRepository;
 
-  private final UserRepository userRepository;
+  private final UserCache userCache;
 
-  private final BookRepository bookRepository;
+  private final BookCache bookCache;
 
   public LoanService(
       LoanRepository loanRepository,
-      UserRepository userRepository,
-      BookRepository bookRepository
+      UserCache userCache,
+      BookCache bookCache
   ) {
     this.loanRepository = loanRepository;
-    this.userRepository = userRepository;
-    this.bookRepository = bookRepository;
+    this.userCache = userCache;
+    this.bookCache = bookCache;
   }
 
   public Flux<LoanDto> getBorrowedBooksByUser(String userName) {
-    return userRepository.findByUsername(userName)
+    return userCache.findByUsername(userName)
         .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")))
         .flatMapMany(user -> loanRepository.findByUserIdWithBook(user.id))
-        .map(this::toDto)
-        .doOnError(err -> System.err.println("Error in findBorrowedByUser: " + err.getMessage()));
+        .map(LoanService::toDto)
+        .doOnError(err -> logger.atDebug()
+            .setMessage("Borrowed books could not be read")
+            .addKeyValue("userName", userName)
+            .setCause(err)
+            .log());
   }
 
+  /**
+   * Borrows a book to a user. Book and user come from the caches, so the insert of the loan is the only statement.
+   * Whether the book is still available is decided by the unique key on open loans.
+   *
+   * @throws NoSuchElementException (as error signal) if the book or user does not exist
+   * @throws IllegalStateException (as error signal) if the book is already borrowed
+   */
   public Mono<LoanDto> borrowBook(String isbn, String userName) {
-    return userRepository.findByUsername(userName)
-        .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")))
-        .zipWhen(u -> bookRepository.findByIsbn(isbn)
-            .switchIfEmpty(Mono.error(new NoSuchElementException("Book not found"))))
+    return bookCache.getMetadata(isbn)
+        .switchIfEmpty(Mono.error(new NoSuchElementException("Book not found")))
+        .zipWith(userCache.findByUsername(userName)
+            .switchIfEmpty(Mono.error(new NoSuchElementException("User not found"))))
         .flatMap(tuple -> {
-          var user = tuple.getT1();
-          var book = tuple.getT2();
-
-          return loanRepository.existsByBookIdAndReturnedAtIsNull(book.getId())
-              .flatMap(exists -> {
-                if (exists) return Mono.error(new IllegalStateException("Book is already borrowed"));
-                var loan = new LoanEntity();
-                loan.userId = user.id;
-                loan.bookId = book.getId();
-                loan.borrowedAt = Instant.now();
-                return loanRepository.save(loan)
-                    .map(saved -> toDto(saved, book));
-              });
+          var book = tuple.getT1();
+          var user = tuple.getT2();
+          return loanRepository.save(newLoan(user.id, book.id()))
+              .onErrorMap(LoanService::isOpenLoanConflict, e -> new IllegalStateException("Book is already borrowed"))
+              .doOnNext(saved -> bookCache.loanOpened(saved.bookId, saved.id,
+                  new LoanStatusDto(false, saved.userId, saved.borrowedAt)))
+              .map(saved -> new LoanDto(saved.id, book.book(), saved.borrowedAt, null));
         });
   }
 
-  public Mono<Void> returnBook(Long loanId, String userName) {
-    Mono<UserEntity> userMono = userRepository.findByUsername(userName)
-        .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")));
+  /**
+   * Returns a book by closing the open loan in one conditional update. The isbn of the returned book comes from the
+   * book cache. The loan is only read if nothing was updated, to tell why, or if the cache does not know its book.
+   *
+   * @return the result with the isbn of the returned book
+   * @throws NoSuchElementException (as error signal) if there is no such loan of the user
+   * @throws IllegalStateException (as error signal) if the loan is already returned
+   */
+  public Mono<ReturnResultDto> returnBook(Long loanId, String userName) {
+    Instant returnedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
 
-    Mono<LoanEntity> loanMono = loanRepository.findById(loanId)
-        .switchIfEmpty(Mono.error(new NoSuchElementException("Loan not found")));
+    return userCache.findByUsername(userName)
+        .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")))
+        .flatMap(user -> loanRepository.returnLoan(loanId, user.id, returnedAt)
+            .flatMap(updated -> updated > 0
+                ? returned(loanId)
+                : loanRepository.findAllByIdWithBook(List.of(loanId)).next()
+                    .filter(loan -> Objects.equals(loan.getUserId(), user.id))
+                    .switchIfEmpty(Mono.error(new NoSuchElementException("Loan not found")))
+                    .flatMap(loan -> Mono.<ReturnResultDto>error(
+                        new IllegalStateException("Loan is already returned")))));
+  }
 
-    return userMono.zipWith(loanMono)
-        .flatMap(tuple -> {
-          var user = tuple.getT1();
-          var loan = tuple.getT2();
+  /**
+   * Result of a returned loan, the book is taken from the book cache and only read if the cache does not know it.
+   */
+  private Mono<ReturnResultDto> returned(Long loanId) {
+    return Mono.justOrEmpty(bookCache.getOpenLoanBook(loanId))
+        .map(book -> Map.entry(book.id(), book.book().isbn()))
+        .switchIfEmpty(Mono.defer(() -> loanRepository.findAllByIdWithBook(List.of(loanId)).next()
+            .map(loan -> Map.entry(loan.getBookId(), loan.getIsbn()))))
+        .map(book -> {
+          bookCache.loanClosed(loanId, book.getKey());
+          return new ReturnResultDto(loanId, 200, null, book.getValue());
+        });
+  }
 
-          if (!Objects.equals(loan.userId, user.id)) {
-            return Mono.error(new IllegalStateException("User is not the owner of the loan"));
-          }
+  /**
+   * Borrows several books to a user. The books missing in the cache are read with one query, the loans are inserted
+   * one statement per book, a few at a time, so that the outcome of each insert tells whether this request opened the
+   * loan. Whether a book is still available is decided by the unique key on open loans, like for a single book.
+   *
+   * @return one result per requested isbn, in request order
+   * @throws NoSuchElementException (as error signal) if the user does not exist
+   * @throws IllegalArgumentException (as error signal) if there are too many or empty isbns
+   */
+  public Flux<BorrowResultDto> borrowBooks(List<String> isbns, String userName) {
+    if (isbns.size() > MAX_BATCH_SIZE || isbns.stream().anyMatch(isbn -> isbn == null || isbn.isBlank())) {
+      return Flux.error(new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " non-empty isbns allowed"));
+    }
+    if (isbns.isEmpty()) {
+      return Flux.empty();
+    }
 
-          loan.returnedAt = Instant.now();
-          return loanRepository.save(loan).then(); // Mono<Void>
+    return userCache.findByUsername(userName)
+        .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")))
+        .zipWith(bookCache.getAllMetadata(Set.copyOf(isbns)))
+        .flatMapMany(tuple -> {
+          var user = tuple.getT1();
+          Map<String, CachedBook> books = tuple.getT2();
+
+          return Flux.fromIterable(books.entrySet())
+              .flatMap(entry -> loanRepository.save(newLoan(user.id, entry.getValue().id()))
+                  .map(Optional::of)
+                  .onErrorResume(LoanService::isOpenLoanConflict, e -> Mono.just(Optional.empty()))
+                  .map(loan -> Map.entry(entry.getKey(), loan)), STATEMENT_CONCURRENCY)
+              .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+              .flatMapIterable(opened -> {
+                Set<String> seen = new HashSet<>();
+                List<BorrowResultDto> results = new ArrayList<>(isbns.size());
+                for (String isbn : isbns) {
+                  CachedBook book = books.get(isbn);
+                  Optional<LoanEntity> loan = opened.getOrDefault(isbn, Optional.empty());
+                  if (book == null) {
+                    results.add(new BorrowResultDto(isbn, 404, "Book not found", null));
+                  } else if (seen.add(isbn) && loan.isPresent()) {
+                    LoanEntity saved = loan.get();
+                    bookCache.loanOpened(book.id(), saved.id, new LoanStatusDto(false, user.id, saved.borrowedAt));
+                    results.add(new BorrowResultDto(isbn, 200, null,
+                        new LoanDto(saved.id, book.book(), saved.borrowedAt, null)));
+                  } else {
+                    results.add(new BorrowResultDto(isbn, 409, "Book is already borrowed", null));
+                  }
+                }
+                return results;
+              });
         });
   }
 
-  private LoanDto toDto(LoanEntity loan, BookWithLoanProjection book) {
-    return new LoanDto(
-        loan.id,
-        new BookDto(
-            book.getIsbn(),
-            book.getTitle(),
-            book.getAuthor(),
-            book.getPublishedAt(),
-            book.getPublisher(),
-            book.getLanguage(),
-            book.getPages(),
-            book.getDescription(),
-            null
-        ),
-        loan.borrowedAt,
-        loan.returnedAt);
+  /**
+   * Returns several loans of a user, one conditional update per loan, a few at a time, so that the number of updated
+   * rows tells whether this request closed the loan. The loans are read afterwards with one query, to tell the isbns
+   * and, for the loans not closed, why.
+   *
+   * @return one result per requested loan id, in request order
+   * @throws NoSuchElementException (as error signal) if the user does not exist
+   * @throws IllegalArgumentException (as error signal) if there are too many or empty loan ids
+   */
+  public Flux<ReturnResultDto> returnBooks(List<Long> loanIds, String userName) {
+    if (loanIds.size() > MAX_BATCH_SIZE || loanIds.stream().anyMatch(Objects::isNull)) {
+      return Flux.error(new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " loan ids allowed"));
+    }
+    if (loanIds.isEmpty()) {
+      return Flux.empty();
+    }
+
+    Set<Long> distinctIds = Set.copyOf(loanIds);
+    Instant returnedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    return userCache.findByUsername(userName)
+        .switchIfEmpty(Mono.error(new NoSuchElementException("User not found")))
+        .flatMapMany(user -> Flux.fromIterable(distinctIds)
+            .flatMap(loanId -> loanRepository.returnLoan(loanId, user.id, returnedAt)
+                .filter(updated -> updated > 0)
+                .map(updated -> loanId), STATEMENT_CONCURRENCY)
+            .collect(Collectors.toSet())
+            .zipWhen(returned -> loanRepository.findAllByIdWithBook(distinctIds)
+                .collectMap(LoanWithBookProjection::getId))
+            .flatMapIterable(tuple -> {
+              Set<Long> returned = tuple.getT1();
+              Map<Long, LoanWithBookProjection> loans = tuple.getT2();
+              Set<Long> seen = new HashSet<>();
+              List<ReturnResultDto> results = new ArrayList<>(loanIds.size());
+              for (Long loanId : loanIds) {
+                LoanWithBookProjection loan = loans.get(loanId);
+                if (loan == null || !Objects.equals(loan.getUserId(), user.id)) {
+                  results.add(new ReturnResultDto(loanId, 404, "Loan not found", null));
+                } else if (seen.add(loanId) && returned.contains(loanId)) {
+                  bookCache.loanClosed(loanId, loan.getBookId());
+                  results.add(new ReturnResultDto(loanId, 200, null, loan.getIsbn()));
+                } else {
+                  results.add(new ReturnResultDto(loanId, 409, "Loan is already returned", loan.getIsbn()));
+                }
+              }
+              return results;
+            }));
+  }
+
+  private static LoanEntity newLoan(Long userId, Long bookId) {
+    var loan = new LoanEntity();
+    loan.userId = userId;
+    loan.bookId = bookId;
+    loan.borrowedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    return loan;
+  }
+
+  /**
+   * Whether the error is the violation of the unique key on open loans. Other integrity violations, e.g. of the foreign
+   * key to a user deleted behind the cache, are not a conflict and propagate.
+   */
+  private static boolean isOpenLoanConflict(Throwable error) {
+    for (Throwable e = error; e != null; e = e.getCause()) {
+      if (e instanceof R2dbcException r2dbc && r2dbc.getErrorCode() == ER_DUP_ENTRY
+          && r2dbc.getMessage() != null && r2dbc.getMessage().contains(OPEN_LOAN_KEY)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private LoanDto toDto(LoanWithBookProjection loan) {
+  static LoanDto toDto(LoanWithBookProjection loan) {
     return new LoanDto(loan.getId(),
         new BookDto(
             loan.getIsbn(),
@@ -0,0 +1,77 @@
+package org.kergru.library.paging;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches the total counts of paged searches, keyed by the searched entity and the normalized search string.
+ *
+ * <p>Counts run the same unindexable LIKE predicate as the search itself, so paging through a result would otherwise
+ * count it again for every page. Entries expire after a short time; writers that change the number of rows of an
+ * entity call {@link #invalidate(String)}.
+ */
+@Component
+public class CountCache {
+
+  public static final String BOOKS = "books";
+
+  public static final String USERS = "users";
+
+  private final AsyncCache<String, Long> counts;
+
+  public CountCache(
+      @Value("${library.paging.count-cache.ttl:30s}") Duration ttl,
+      @Value("${library.paging.count-cache.max-size:10000}") long maxSize) {
+    this.counts = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .buildAsync();
+  }
+
+  /**
+   * Returns the cached count or loads it, concurrent requests for the same key share one count query.
+   */
+  public Mono<Long> exact(String entity, String search, Supplier<Mono<Long>> count) {
+    return Mono.fromFuture(() -> counts.get(key(entity, search), (k, executor) -> count.get().toFuture()));
+  }
+
+  /**
+   * Returns the cached count, or the estimate if there is none. A missing count is loaded in the background, so
+   * following pages of the same search get the exact count. Empty if neither a cached count nor an estimate exist.
+   */
+  public Mono<Long> estimated(String entity, String search, Supplier<Mono<Long>> count,
+      Supplier<Mono<Long>> estimate) {
+    return Mono.defer(() -> {
+      CompletableFuture<Long> cached = counts.getIfPresent(key(entity, search));
+      if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+        return Mono.fromFuture(cached);
+      }
+      if (cached == null) {
+        counts.get(key(entity, search), (k, executor) -> count.get().toFuture());
+      }
+      return estimate.get();
+    });
+  }
+
+  /**
+   * Removes all cached counts of an entity.
+   */
+  public void invalidate(String entity) {
+    String prefix = entity + ":";
+    counts.synchronous().asMap().keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  /**
+   * Searches are case-insensitive, so searches differing only in case share their count.
+   */
+  private static String key(String entity, String search) {
+    return entity + ":" + (search == null ? "" : search.toLowerCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,23 @@
+package org.kergru.library.paging;
+
+/**
+ * How the total number of results of a paged search is determined.
+ */
+public enum CountMode {
+
+  /**
+   * Exact count, cached for a short time per search string.
+   */
+  EXACT,
+
+  /**
+   * Cached count if present, otherwise the table statistics for unfiltered searches or a lower bound derived from the
+   * current page. A missing exact count is loaded in the background for following pages.
+   */
+  ESTIMATED,
+
+  /**
+   * No count at all, totalElements and totalPages are reported as -1 and only whether there is a next page is known.
+   */
+  NONE
+}
@@ -0,0 +1,46 @@
+package org.kergru.library.paging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Position of the last element of a page in a keyset (seek) pagination, used to continue with the elements after it.
+ * Clients only see the encoded, opaque form.
+ *
+ * @param page      number of the page the cursor continues with
+ * @param sortBy    sort field the position refers to, a cursor is only valid for the same sort field
+ * @param direction sort direction the position refers to, a cursor is only valid for the same direction
+ * @param value     value of the sort field of the last element
+ * @param id        id of the last element, tie-breaker for equal sort values
+ */
+public record PageCursor(int page, String sortBy, Direction direction, String value, Long id) {
+
+  public String encode() {
+    String raw = page + ":" + id + ":" + sortBy + ":" + direction + ":" + value;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor issued for the given sort field and direction.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort field or direction
+   */
+  public static PageCursor decode(String cursor, String sortBy, Direction direction) {
+    String[] parts;
+    try {
+      parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 5);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+    if (parts.length != 5 || !Objects.equals(parts[2], sortBy) || !Objects.equals(parts[3], direction.name())) {
+      throw new IllegalArgumentException("Invalid cursor for sortBy " + sortBy + " " + direction);
+    }
+    try {
+      return new PageCursor(Integer.parseInt(parts[0]), parts[2], direction, parts[4], Long.valueOf(parts[1]));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package org.kergru.library.paging;
+
+import java.util.List;
+import java.util.function.Function;
+import org.kergru.library.model.PageResponseDto;
+
+/**
+ * Builds {@link PageResponseDto}s from a page of rows that was read with one extra row to find out whether there is a
+ * next page, so it does not depend on a total count.
+ */
+public final class PageResponses {
+
+  /**
+   * Total of a search that was not counted.
+   */
+  public static final long UNCOUNTED = -1;
+
+  private PageResponses() {
+  }
+
+  /**
+   * @param rows       rows of the page plus, if there is a next page, one extra row
+   * @param number     page number
+   * @param size       page size
+   * @param total      total number of results, {@link #UNCOUNTED} if unknown
+   * @param mapper     maps a row to its dto
+   * @param nextCursor cursor to the page after the given last row
+   */
+  public static <R, T> PageResponseDto<T> of(List<R> rows, int number, int size, long total,
+      Function<R, T> mapper, Function<R, String> nextCursor) {
+
+    boolean hasNext = rows.size() > size;
+    List<R> content = hasNext ? rows.subList(0, size) : rows;
+    int totalPages = total == UNCOUNTED ? -1 : size == 0 ? 1 : (int) Math.ceil((double) total / size);
+
+    return new PageResponseDto<>(
+        content.stream().map(mapper).toList(),
+        number,
+        size,
+        totalPages,
+        total,
+        number == 0,
+        !hasNext,
+        content.size(),
+        content.isEmpty(),
+        hasNext ? nextCursor.apply(content.getLast()) : null
+    );
+  }
+
+  /**
+   * Lower bound of the total derived from the position of the page and whether there is a next page.
+   */
+  public static long lowerBound(long offset, List<?> rows) {
+    return offset + rows.size();
+  }
+}
@@ -0,0 +1,94 @@
+package org.kergru.library.paging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Builds the SQL of a paged search with a fixed ORDER BY per sort column and direction.
+ *
+ * <p>A single statement that picks its sort column at runtime ({@code ORDER BY CASE WHEN :sortBy = ...}) can not be
+ * served by any index, so MySQL always sorts the whole result. Instead, every combination of sort column, direction,
+ * search predicate and paging mode gets its own statement text ordering by {@code <column>, <id>}, which the matching
+ * composite index delivers presorted. Statements are built once and reused, so the driver can keep them prepared.
+ *
+ * <p>Parameters: {@code :searchString} if a search predicate is used, {@code :limit}, {@code :offset} for offset
+ * paging and {@code :afterValue}, {@code :afterId} for keyset paging.
+ */
+public class SearchStatements {
+
+  public enum Paging { OFFSET, KEYSET }
+
+  private final String select;
+
+  private final String count;
+
+  private final String searchPredicate;
+
+  private final String idColumn;
+
+  private final Map<String, String> sortColumns;
+
+  private final String defaultSortBy;
+
+  private final Map<String, String> statements = new ConcurrentHashMap<>();
+
+  /**
+   * @param select          select and from clause of the search, without where clause
+   * @param count           select and from clause of the count, without where clause
+   * @param searchPredicate condition applied if a search string is given
+   * @param idColumn        unique column used as tie-breaker
+   * @param sortColumns     sortable columns by sort field name
+   * @param defaultSortBy   sort field used for unknown sort field names
+   */
+  public SearchStatements(String select, String count, String searchPredicate, String idColumn,
+      Map<String, String> sortColumns, String defaultSortBy) {
+    this.select = select;
+    this.count = count;
+    this.searchPredicate = searchPredicate;
+    this.idColumn = idColumn;
+    this.sortColumns = sortColumns;
+    this.defaultSortBy = defaultSortBy;
+  }
+
+  /**
+   * Returns the known sort field for the given name, the default sort field for unknown names.
+   */
+  public String sortField(String sortBy) {
+    return sortColumns.containsKey(sortBy) ? sortBy : defaultSortBy;
+  }
+
+  public String search(String sortBy, Direction direction, boolean withSearch, Paging paging) {
+    String sortField = sortField(sortBy);
+    String key = sortField + ":" + direction + ":" + withSearch + ":" + paging;
+    return statements.computeIfAbsent(key, k -> buildSearch(sortColumns.get(sortField), direction, withSearch, paging));
+  }
+
+  public String count(boolean withSearch) {
+    return withSearch ? count + "\nWHERE " + searchPredicate : count;
+  }
+
+  private String buildSearch(String sortColumn, Direction direction, boolean withSearch, Paging paging) {
+    StringBuilder sql = new StringBuilder(select);
+    String conjunction = "\nWHERE ";
+    if (withSearch) {
+      sql.append(conjunction).append(searchPredicate);
+      conjunction = "\n  AND ";
+    }
+    if (paging == Paging.KEYSET) {
+      String comparison = direction.isAscending() ? " > " : " < ";
+      sql.append(conjunction)
+          .append('(').append(sortColumn).append(comparison).append(":afterValue")
+          .append(" OR (").append(sortColumn).append(" = :afterValue AND ")
+          .append(idColumn).append(comparison).append(":afterId))");
+    }
+    sql.append("\nORDER BY ")
+        .append(sortColumn).append(' ').append(direction.name()).append(", ")
+        .append(idColumn).append(' ').append(direction.name())
+        .append("\nLIMIT :limit");
+    if (paging == Paging.OFFSET) {
+      sql.append(" OFFSET :offset");
+    }
+    return sql.toString();
+  }
+}
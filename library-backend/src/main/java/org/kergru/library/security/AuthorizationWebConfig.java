@@ -0,0 +1,24 @@
+package org.kergru.library.security;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+/**
+ * Registers the {@link LibraryPrincipalArgumentResolver}, so controllers can check authorization on the
+ * {@link LibraryPrincipal} instead of evaluating {@code @PreAuthorize} expressions per call.
+ */
+@Configuration
+public class AuthorizationWebConfig implements WebFluxConfigurer {
+
+  private final LibraryPrincipalArgumentResolver libraryPrincipalArgumentResolver;
+
+  public AuthorizationWebConfig(LibraryPrincipalArgumentResolver libraryPrincipalArgumentResolver) {
+    this.libraryPrincipalArgumentResolver = libraryPrincipalArgumentResolver;
+  }
+
+  @Override
+  public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+    configurer.addCustomResolver(libraryPrincipalArgumentResolver);
+  }
+}
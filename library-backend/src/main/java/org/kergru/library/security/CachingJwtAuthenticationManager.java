@@ -0,0 +1,89 @@
+package org.kergru.library.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authenticates bearer tokens once and reuses the resulting authentication for the same token until it expires. Tokens
+ * are cached by their SHA-256 hash, never in clear. Concurrent requests with a token not yet verified share one
+ * verification, failed verifications are not cached.
+ */
+public class CachingJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+  private final ReactiveAuthenticationManager delegate;
+
+  private final AsyncCache<String, Authentication> authentications;
+
+  /**
+   * @param delegate verifies the token and converts it into an authentication
+   * @param maxTtl   longest time an authentication is cached, even if the token expires later
+   * @param maxSize  maximum number of cached authentications
+   */
+  public CachingJwtAuthenticationManager(ReactiveAuthenticationManager delegate, Duration maxTtl, long maxSize,
+      MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.authentications = Caffeine.newBuilder()
+        .expireAfter(new Expiry<String, Authentication>() {
+          @Override
+          public long expireAfterCreate(String key, Authentication authentication, long currentTime) {
+            Instant expiresAt = authentication instanceof JwtAuthenticationToken jwt
+                ? jwt.getToken().getExpiresAt()
+                : null;
+            if (expiresAt == null) {
+              return maxTtl.toNanos();
+            }
+            long untilExpiry = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtl.toNanos()));
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, Authentication authentication, long currentTime,
+              long currentDuration) {
+            return expireAfterCreate(key, authentication, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String key, Authentication authentication, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, authentications.synchronous(), "jwt-authentications");
+  }
+
+  @Override
+  public Mono<Authentication> authenticate(Authentication authentication) {
+    if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+      return delegate.authenticate(authentication);
+    }
+    return Mono.fromFuture(() -> authentications.get(hash(bearer.getToken()),
+        (key, executor) -> delegate.authenticate(authentication).toFuture()));
+  }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.kergru.library.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import org.kergru.library.reactive.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the JWK set of the issuer in memory. It is fetched at startup and refreshed in the background, so signature
+ * verification does not wait for a fetch. Only a token signed with a key id missing in the set triggers a fetch, unless a
+ * fetch was started within the minimum refresh interval, whether it succeeded or not. Rotated keys are picked up early
+ * without letting forged key ids flood the issuer, also while it is down.
+ */
+@Component
+public class JwkSetCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(JwkSetCache.class);
+
+  private final WebClient webClient;
+
+  private final String jwkSetUri;
+
+  private final Duration refreshInterval;
+
+  private final Duration minRefreshInterval;
+
+  private final SingleFlight<String, JWKSet> fetches = new SingleFlight<>();
+
+  private volatile JWKSet jwkSet = new JWKSet();
+
+  /**
+   * Start of the last fetch, successful or not, so an issuer that is down is not asked again for every unknown key id.
+   */
+  private volatile long lastFetchAttempt;
+
+  private Disposable refreshes;
+
+  public JwkSetCache(
+      WebClient.Builder webClientBuilder,
+      @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+      @Value("${library.security.jwks.refresh-interval:5m}") Duration refreshInterval,
+      @Value("${library.security.jwks.min-refresh-interval:30s}") Duration minRefreshInterval) {
+    this.webClient = webClientBuilder.build();
+    this.jwkSetUri = jwkSetUri;
+    this.refreshInterval = refreshInterval;
+    this.minRefreshInterval = minRefreshInterval;
+    this.lastFetchAttempt = System.nanoTime() - minRefreshInterval.toNanos(); // a fetch is allowed at once
+  }
+
+  @PostConstruct
+  void start() {
+    refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+        .concatMap(tick -> fetch().onErrorResume(e -> Mono.empty()))
+        .subscribe();
+  }
+
+  @PreDestroy
+  void stop() {
+    refreshes.dispose();
+  }
+
+  /**
+   * Keys matching the header of the token, source of the JWT decoder.
+   */
+  public Flux<JWK> keys(SignedJWT jwt) {
+    JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+    List<JWK> keys = selector.select(jwkSet);
+    if (!keys.isEmpty()) {
+      return Flux.fromIterable(keys);
+    }
+    if (System.nanoTime() - lastFetchAttempt < minRefreshInterval.toNanos()) {
+      return Flux.empty();
+    }
+    return fetch()
+        .onErrorResume(e -> Mono.just(jwkSet))
+        .flatMapIterable(selector::select);
+  }
+
+  private Mono<JWKSet> fetch() {
+    return fetches.execute(jwkSetUri, () -> {
+      lastFetchAttempt = System.nanoTime();
+      return webClient.get()
+          .uri(jwkSetUri)
+          .retrieve()
+          .bodyToMono(String.class)
+          .timeout(Duration.ofSeconds(10))
+          .map(JwkSetCache::parse)
+          .doOnNext(fetched -> jwkSet = fetched)
+          .doOnError(e -> logger.warn("JWK set could not be fetched from {}: {}", jwkSetUri, e.getMessage()));
+    });
+  }
+
+  private static JWKSet parse(String json) {
+    try {
+      return JWKSet.parse(json);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Invalid JWK set", e);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.kergru.library.security;
+
+import java.util.Collection;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+/**
+ * The authenticated user of a request, resolved once from the JWT, with the authorization checks of the endpoints. A
+ * failed check throws an {@link AccessDeniedException}, answered with 403 Forbidden like a denied
+ * {@code @PreAuthorize}.
+ *
+ * @param userName  preferred_username claim of the token
+ * @param librarian whether the user has the realm role LIBRARIAN
+ */
+public record LibraryPrincipal(String userName, boolean librarian) {
+
+  public static final String LIBRARIAN_AUTHORITY = "ROLE_LIBRARIAN";
+
+  public static LibraryPrincipal of(Authentication authentication) {
+    String userName = authentication instanceof JwtAuthenticationToken jwt
+        ? jwt.getToken().getClaimAsString("preferred_username")
+        : authentication.getName();
+    boolean librarian = false;
+    for (GrantedAuthority authority : authentication.getAuthorities()) {
+      if (LIBRARIAN_AUTHORITY.equals(authority.getAuthority())) {
+        librarian = true;
+        break;
+      }
+    }
+    return new LibraryPrincipal(userName, librarian);
+  }
+
+  /**
+   * Whether the userName is the one of this user.
+   */
+  public boolean isOwner(String userName) {
+    return this.userName != null && this.userName.equals(userName);
+  }
+
+  public void requireLibrarian() {
+    if (!librarian) {
+      throw new AccessDeniedException("Access denied");
+    }
+  }
+
+  public void requireOwner(String userName) {
+    if (!isOwner(userName)) {
+      throw new AccessDeniedException("Access denied");
+    }
+  }
+
+  public void requireOwnerOrLibrarian(String userName) {
+    if (!librarian && !isOwner(userName)) {
+      throw new AccessDeniedException("Access denied");
+    }
+  }
+
+  /**
+   * Requires the librarian role or all userNames to be the one of this user.
+   */
+  public void requireOwnerOrLibrarian(Collection<String> userNames) {
+    if (!librarian && !userNames.stream().allMatch(this::isOwner)) {
+      throw new AccessDeniedException("Access denied");
+    }
+  }
+}
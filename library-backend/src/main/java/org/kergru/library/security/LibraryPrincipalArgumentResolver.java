@@ -0,0 +1,32 @@
+package org.kergru.library.security;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves controller method parameters of type {@link LibraryPrincipal} from the authentication of the request.
+ */
+@Component
+public class LibraryPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.getParameterType() == LibraryPrincipal.class;
+  }
+
+  @Override
+  public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+      ServerWebExchange exchange) {
+
+    return exchange.getPrincipal()
+        .filter(Authentication.class::isInstance)
+        .<Object>map(principal -> LibraryPrincipal.of((Authentication) principal))
+        .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Not authenticated")));
+  }
+}
@@ -1,9 +1,12 @@
 package org.kergru.library.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import org.kergru.library.security.logging.JwtLoggingFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -13,9 +16,14 @@ import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import reactor.core.publisher.Mono;
 
@@ -46,21 +54,47 @@ public class OAuth2SecurityConfig {
   @Bean
   public SecurityWebFilterChain securityWebFilterChain(
       ServerHttpSecurity http,
-      JwtLoggingFilter jwtLoggingFilter) {
+      JwtLoggingFilter jwtLoggingFilter,
+      ReactiveJwtDecoder jwtDecoder,
+      MeterRegistry meterRegistry,
+      @Value("${library.security.jwt.cache.max-ttl:5m}") Duration cacheMaxTtl,
+      @Value("${library.security.jwt.cache.max-size:10000}") long cacheMaxSize) {
+
+    JwtReactiveAuthenticationManager jwtAuthenticationManager = new JwtReactiveAuthenticationManager(jwtDecoder);
+    jwtAuthenticationManager.setJwtAuthenticationConverter(jwtAuthenticationConverter());
 
     return http
         .csrf(ServerHttpSecurity.CsrfSpec::disable) // CSRF protection is not needed for a resource server, token secured
         .addFilterAfter(jwtLoggingFilter, SecurityWebFiltersOrder.AUTHENTICATION)
         .authorizeExchange(exchange -> exchange
-            .pathMatchers("/actuator/**").permitAll()
+            .pathMatchers("/actuator/health/**").permitAll()
+            .pathMatchers("/actuator/**").hasAuthority("ROLE_LIBRARIAN") // metrics expose timings and pool stats
             .anyExchange().authenticated()
         )
         .oauth2ResourceServer(oauth2 -> oauth2
-            .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+            .jwt(jwt -> jwt.authenticationManager(new CachingJwtAuthenticationManager(
+                jwtAuthenticationManager, cacheMaxTtl, cacheMaxSize, meterRegistry)))
         )
         .build();
   }
 
+  /**
+   * JWT decoder verifying signatures with the keys of the {@link JwkSetCache} instead of fetching the JWK set on demand,
+   * and validating expiry and issuer.
+   */
+  @Bean
+  public ReactiveJwtDecoder jwtDecoder(
+      JwkSetCache jwkSetCache,
+      @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+      @Value("${spring.security.oauth2.resourceserver.jwt.jws-algorithms:RS256}") String jwsAlgorithm) {
+
+    NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::keys)
+        .jwsAlgorithm(SignatureAlgorithm.from(jwsAlgorithm))
+        .build();
+    decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+    return decoder;
+  }
+
   /**
    * JWT authentication converter that maps the re roles from the JWT token to the Spring Security authorities.
    */
@@ -0,0 +1,88 @@
+package org.kergru.library.users.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import org.kergru.library.users.repository.UserEntity;
+import org.kergru.library.users.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches users by userName, so the authenticated request paths can resolve the {@code preferred_username} of the
+ * token to the user without a database round trip.
+ *
+ * <p>Unknown userNames are cached as well, with a shorter TTL, so requests of users not (yet) known to the library do
+ * not hit the database every time. Writers of users call {@link #invalidate(String)}. Cached users must not be
+ * modified.
+ */
+@Component
+public class UserCache {
+
+  private final UserRepository userRepository;
+
+  private final AsyncCache<String, Optional<UserEntity>> users;
+
+  public UserCache(
+      UserRepository userRepository,
+      MeterRegistry meterRegistry,
+      @Value("${library.users.cache.ttl:10m}") Duration ttl,
+      @Value("${library.users.cache.negative-ttl:30s}") Duration negativeTtl,
+      @Value("${library.users.cache.max-size:10000}") long maxSize) {
+    this.userRepository = userRepository;
+    this.users = Caffeine.newBuilder()
+        .expireAfter(new Expiry<String, Optional<UserEntity>>() {
+          @Override
+          public long expireAfterCreate(String key, Optional<UserEntity> user, long currentTime) {
+            return (user.isPresent() ? ttl : negativeTtl).toNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, Optional<UserEntity> user, long currentTime,
+              long currentDuration) {
+            return expireAfterCreate(key, user, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String key, Optional<UserEntity> user, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .maximumSize(maxSize)
+        .recordStats()
+        .buildAsync();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, users.synchronous(), "users");
+  }
+
+  /**
+   * Cached user with the userName, empty if there is no such user.
+   */
+  public Mono<UserEntity> findByUsername(String userName) {
+    return Mono.fromFuture(() -> users.get(userName, (key, executor) -> userRepository.findByUsername(key)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .toFuture()))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  /**
+   * Removes a user from the cache, used if the user was created, changed or deleted.
+   */
+  public void invalidate(String userName) {
+    users.synchronous().invalidate(userName);
+  }
+
+  /**
+   * Removes all users from the cache.
+   */
+  public void invalidateAll() {
+    users.synchronous().invalidateAll();
+  }
+}
@@ -0,0 +1,43 @@
+package org.kergru.library.users.repository;
+
+import org.springframework.data.domain.Sort.Direction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * User searches that are built per sort field and direction at runtime instead of being declared with {@code @Query}.
+ * A null search string matches all users.
+ */
+public interface UserRepositoryCustom {
+
+  /**
+   * Returns up to {@code limit} users ordered by the sort field and id, skipping the first {@code offset} users.
+   */
+  Flux<UserEntity> searchUsers(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      long offset,
+      int limit
+  );
+
+  /**
+   * Keyset (seek) search: returns up to {@code limit} users ordered by the sort field and id that come after the given
+   * position, or the first users if {@code afterId} is null. The cost does not grow with the position in the result.
+   */
+  Flux<UserEntity> searchUsersAfter(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      String afterValue,
+      Long afterId,
+      int limit
+  );
+
+  Mono<Long> countUsers(String searchString);
+
+  /**
+   * Estimated number of all users from the table statistics, without counting.
+   */
+  Mono<Long> estimateUserCount();
+}
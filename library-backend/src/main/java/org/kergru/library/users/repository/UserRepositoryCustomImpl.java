@@ -0,0 +1,99 @@
+package org.kergru.library.users.repository;
+
+import java.util.Map;
+import org.kergru.library.paging.SearchStatements;
+import org.kergru.library.paging.SearchStatements.Paging;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  static final SearchStatements STATEMENTS = new SearchStatements(
+      """
+          SELECT u.*
+          FROM users u""",
+      """
+          SELECT COUNT(u.id) FROM users u""",
+      """
+          (u.username LIKE CONCAT('%', :searchString, '%') OR
+           u.firstname LIKE CONCAT('%', :searchString, '%') OR
+           u.lastname LIKE CONCAT('%', :searchString, '%') OR
+           u.email LIKE CONCAT('%', :searchString, '%'))""",
+      "u.id",
+      Map.of(
+          "userName", "u.username",
+          "firstName", "u.firstname",
+          "lastName", "u.lastname",
+          "email", "u.email"
+      ),
+      "firstName"
+  );
+
+  private final R2dbcEntityTemplate template;
+
+  UserRepositoryCustomImpl(R2dbcEntityTemplate template) {
+    this.template = template;
+  }
+
+  @Override
+  public Flux<UserEntity> searchUsers(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      long offset,
+      int limit
+  ) {
+    String sql = STATEMENTS.search(sortBy, direction, searchString != null, Paging.OFFSET);
+    return query(sql, searchString)
+        .bind("limit", limit)
+        .bind("offset", offset)
+        .map((row, metadata) -> template.getConverter().read(UserEntity.class, row, metadata))
+        .all();
+  }
+
+  @Override
+  public Flux<UserEntity> searchUsersAfter(
+      String searchString,
+      String sortBy,
+      Direction direction,
+      String afterValue,
+      Long afterId,
+      int limit
+  ) {
+    if (afterId == null) {
+      return searchUsers(searchString, sortBy, direction, 0, limit);
+    }
+    String sql = STATEMENTS.search(sortBy, direction, searchString != null, Paging.KEYSET);
+    return query(sql, searchString)
+        .bind("limit", limit)
+        .bind("afterValue", afterValue)
+        .bind("afterId", afterId)
+        .map((row, metadata) -> template.getConverter().read(UserEntity.class, row, metadata))
+        .all();
+  }
+
+  @Override
+  public Mono<Long> countUsers(String searchString) {
+    return query(STATEMENTS.count(searchString != null), searchString)
+        .map(row -> row.get(0, Long.class))
+        .one();
+  }
+
+  @Override
+  public Mono<Long> estimateUserCount() {
+    return template.getDatabaseClient()
+        .sql("""
+            SELECT CAST(COALESCE(TABLE_ROWS, 0) AS SIGNED) FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users'""")
+        .map(row -> row.get(0, Long.class))
+        .one();
+  }
+
+  private GenericExecuteSpec query(String sql, String searchString) {
+    GenericExecuteSpec spec = template.getDatabaseClient().sql(sql);
+    return searchString != null ? spec.bind("searchString", searchString) : spec;
+  }
+}
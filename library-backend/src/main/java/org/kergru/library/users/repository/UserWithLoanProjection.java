@@ -0,0 +1,166 @@
+package org.kergru.library.users.repository;
+
+import java.time.Instant;
+
+/**
+ * Row of a user joined with one of his loans and its book, loan and book columns are null for users without loans.
+ */
+public class UserWithLoanProjection {
+
+  private Long userId;
+  private String username;
+  private String firstname;
+  private String lastname;
+  private String email;
+
+  private Long loanId;
+  private Long bookId;
+  private Instant borrowedAt;
+  private Instant returnedAt;
+
+  private String title;
+  private String author;
+  private String isbn;
+  private String publisher;
+  private Integer pages;
+  private Integer publishedAt;
+  private String language;
+  private String description;
+
+  // --- Getter / Setter ---
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public String getFirstname() {
+    return firstname;
+  }
+
+  public void setFirstname(String firstname) {
+    this.firstname = firstname;
+  }
+
+  public String getLastname() {
+    return lastname;
+  }
+
+  public void setLastname(String lastname) {
+    this.lastname = lastname;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  public Long getLoanId() {
+    return loanId;
+  }
+
+  public void setLoanId(Long loanId) {
+    this.loanId = loanId;
+  }
+
+  public Long getBookId() {
+    return bookId;
+  }
+
+  public void setBookId(Long bookId) {
+    this.bookId = bookId;
+  }
+
+  public Instant getBorrowedAt() {
+    return borrowedAt;
+  }
+
+  public void setBorrowedAt(Instant borrowedAt) {
+    this.borrowedAt = borrowedAt;
+  }
+
+  public Instant getReturnedAt() {
+    return returnedAt;
+  }
+
+  public void setReturnedAt(Instant returnedAt) {
+    this.returnedAt = returnedAt;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public void setAuthor(String author) {
+    this.author = author;
+  }
+
+  public String getIsbn() {
+    return isbn;
+  }
+
+  public void setIsbn(String isbn) {
+    this.isbn = isbn;
+  }
+
+  public String getPublisher() {
+    return publisher;
+  }
+
+  public void setPublisher(String publisher) {
+    this.publisher = publisher;
+  }
+
+  public Integer getPages() {
+    return pages;
+  }
+
+  public void setPages(Integer pages) {
+    this.pages = pages;
+  }
+
+  public Integer getPublishedAt() {
+    return publishedAt;
+  }
+
+  public void setPublishedAt(Integer publishedAt) {
+    this.publishedAt = publishedAt;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public void setLanguage(String language) {
+    this.language = language;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+}
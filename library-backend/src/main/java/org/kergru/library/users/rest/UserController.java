@@ -1,12 +1,21 @@
 package org.kergru.library.users.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.NoSuchElementException;
 import org.kergru.library.loans.service.LoanService;
+import org.kergru.library.model.BorrowResultDto;
 import org.kergru.library.model.LoanDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.ReturnResultDto;
 import org.kergru.library.model.UserDto;
+import org.kergru.library.paging.CountMode;
+import org.kergru.library.security.LibraryPrincipal;
 import org.kergru.library.users.service.UserService;
+import org.kergru.library.web.ConditionalGet;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -27,66 +37,171 @@ public class UserController {
 
   private final LoanService loanService;
 
-  public UserController(UserService userService, LoanService loanService) {
+  private final ObjectMapper objectMapper;
+
+  public UserController(UserService userService, LoanService loanService, ObjectMapper objectMapper) {
     this.userService = userService;
     this.loanService = loanService;
+    this.objectMapper = objectMapper;
   }
 
   /**
-   * Returns paged search result of users by userName, firstName, lastName, email
+   * Returns paged search result of users by userName, firstName, lastName, email.
+   * Sorted by sortBy in direction ASC or DESC, ties are ordered by id.
+   * Pages are addressed by page number or, for deep pages, by the nextCursor of the previous page.
+   * countMode EXACT (default), ESTIMATED or NONE decides how totalElements and totalPages are determined.
    */
   @GetMapping()
-  @PreAuthorize("hasRole('LIBRARIAN')")
   public Mono<PageResponseDto<UserDto>> searchUsers(
       @RequestParam(required = false) String searchString,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "firstName") String sortBy
+      @RequestParam(defaultValue = "firstName") String sortBy,
+      @RequestParam(defaultValue = "ASC") Direction direction,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "EXACT") CountMode countMode,
+      LibraryPrincipal principal
   ) {
-    return userService.searchUsers(searchString, page, size, sortBy);
+    principal.requireLibrarian();
+
+    return userService.searchUsers(searchString, page, size, sortBy, direction, cursor, countMode)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
   }
+
+  /**
+   * Streams the users of a search result page as NDJSON or server-sent events, without totals.
+   * The nextCursor of a paged search can be used to continue.
+   */
+  @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+  public Flux<UserDto> streamUsers(
+      @RequestParam(required = false) String searchString,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "firstName") String sortBy,
+      @RequestParam(defaultValue = "ASC") Direction direction,
+      @RequestParam(required = false) String cursor,
+      LibraryPrincipal principal
+  ) {
+    principal.requireLibrarian();
+
+    return userService.streamUsers(searchString, page, size, sortBy, direction, cursor)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
+  /**
+   * Returns several users with their borrowed books in one request, in request order, unknown userNames are skipped.
+   * Accessible by the librarian for any users and by a user for himself only. More than 100 userNames are a 400
+   * BadRequest.
+   */
+  @PostMapping("/batch")
+  public Flux<UserDto> getUsersWithLoans(@RequestBody List<String> userNames, LibraryPrincipal principal) {
+    principal.requireOwnerOrLibrarian(userNames);
+
+    return userService.getUsersWithLoans(userNames)
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
   /**
-   * Returns user profile by userName, only accessible by the librarian or the user himself
+   * Returns user profile by userName, only accessible by the librarian or the user himself.
+   * With include=loans the borrowed books of the user are included, read together with the user in one query.
+   * The ETag is derived from the user (and loans), a matching If-None-Match is answered with 304.
    */
   @GetMapping("/{userName}")
-  @PreAuthorize("hasRole('LIBRARIAN') or #userName == authentication.principal.claims['preferred_username']")
-  public Mono<UserDto> getUser(@PathVariable String userName) {
+  public Mono<UserDto> getUser(@PathVariable String userName, @RequestParam(required = false) String include,
+      ServerWebExchange exchange, LibraryPrincipal principal) {
+    principal.requireOwnerOrLibrarian(userName);
 
-    return userService.getUser(userName)
-        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")));
+    Mono<UserDto> user;
+    if (include == null) {
+      user = userService.getUser(userName);
+    } else if (include.equals("loans")) {
+      user = userService.getUserWithLoans(userName);
+    } else {
+      return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown include " + include));
+    }
+    return ConditionalGet.withETag(exchange, user
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"))),
+        found -> ConditionalGet.ofContent("user", found, objectMapper));
   }
 
   /**
    * All borrowed books by a user, only accessible by the librarian or the user himself
    */
-  @PreAuthorize("hasRole('LIBRARIAN') or #userName == authentication.principal.claims['preferred_username']")
   @GetMapping("/{userName}/loans")
-  public Flux<LoanDto> getBorrowedBooksByUser(@PathVariable String userName) {
+  public Flux<LoanDto> getBorrowedBooksByUser(@PathVariable String userName, LibraryPrincipal principal) {
+    principal.requireOwnerOrLibrarian(userName);
 
     return loanService.getBorrowedBooksByUser(userName)
         .onErrorMap(e -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
   }
+
+  /**
+   * Streams the borrowed books of a user as NDJSON or server-sent events, one loan per element.
+   */
+  @GetMapping(value = "/{userName}/loans", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+  public Flux<LoanDto> streamBorrowedBooksByUser(@PathVariable String userName, LibraryPrincipal principal) {
+    principal.requireOwnerOrLibrarian(userName);
+
+    return loanService.getBorrowedBooksByUser(userName)
+        .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+  }
   /**
    * Borrows a book to a user. Endpoint is only available for the user himself.
-   * If the book is already borrowed, a 409 Conflict is returned.
+   * If the book or user does not exist, a 404 NotFound is returned, if the book is already borrowed, a 409 Conflict.
    */
-  @PreAuthorize("#userName == authentication.principal.claims['preferred_username']")
   @PostMapping("/{userName}/loans")
-  public Mono<LoanDto> borrowBook(@PathVariable String userName, @RequestBody String isbn) {
+  public Mono<LoanDto> borrowBook(@PathVariable String userName, @RequestBody String isbn, LibraryPrincipal principal) {
+    principal.requireOwner(userName);
 
       return loanService.borrowBook(isbn, userName)
-          .onErrorMap(e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+          .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+          .onErrorMap(IllegalStateException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
   }
 
   /**
    * Returns a book to library by setting returnedAt date in loan. Endpoint is only available for the user himself.
-   * If no loan with id found or loan not borrowed by user, a 404 NotFound is returned.
+   * The result carries the isbn of the returned book.
+   * If no loan with id found or loan not borrowed by user, a 404 NotFound is returned, if the loan is already
+   * returned, a 409 Conflict.
    */
-  @PreAuthorize("#userName == authentication.principal.claims['preferred_username']")
   @DeleteMapping("/{userName}/loans/{loanId}")
-  public Mono<Void> returnBook(@PathVariable String userName, @PathVariable long loanId) {
+  public Mono<ReturnResultDto> returnBook(@PathVariable String userName, @PathVariable long loanId,
+      LibraryPrincipal principal) {
+    principal.requireOwner(userName);
 
     return loanService.returnBook(loanId, userName)
-        .onErrorMap(e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()));
+        .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+        .onErrorMap(IllegalStateException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+  }
+
+  /**
+   * Borrows several books to a user in one request. Endpoint is only available for the user himself.
+   * The result contains one element per isbn in request order, with status 200 and the loan if the book was borrowed,
+   * 404 if the book does not exist and 409 if it is already borrowed. An unknown user is a 404 NotFound for the whole
+   * request, more than 100 isbns a 400 BadRequest.
+   */
+  @PostMapping("/{userName}/loans:batch")
+  public Flux<BorrowResultDto> borrowBooks(@PathVariable String userName, @RequestBody List<String> isbns,
+      LibraryPrincipal principal) {
+    principal.requireOwner(userName);
+
+    return loanService.borrowBooks(isbns, userName)
+        .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+  }
+
+  /**
+   * Returns several loans of a user in one request. Endpoint is only available for the user himself.
+   * The result contains one element per loan id in request order, with status 200 if the loan was returned, 404 if
+   * there is no such loan of the user and 409 if it is already returned.
+   */
+  @PostMapping("/{userName}/loans:return")
+  public Flux<ReturnResultDto> returnBooks(@PathVariable String userName, @RequestBody List<Long> loanIds,
+      LibraryPrincipal principal) {
+    principal.requireOwner(userName);
+
+    return loanService.returnBooks(loanIds, userName)
+        .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+        .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
   }
 }
@@ -1,43 +1,183 @@
 package org.kergru.library.users.service;
 
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.List;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.LoanDto;
 import org.kergru.library.model.PageResponseDto;
 import org.kergru.library.model.UserDto;
+import org.kergru.library.paging.CountCache;
+import org.kergru.library.paging.CountMode;
+import org.kergru.library.paging.PageCursor;
+import org.kergru.library.paging.PageResponses;
+import org.kergru.library.users.cache.UserCache;
 import org.kergru.library.users.repository.UserEntity;
 import org.kergru.library.users.repository.UserRepository;
+import org.kergru.library.users.repository.UserWithLoanProjection;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
 public class UserService {
 
+  /**
+   * Maximum number of users in one batch request.
+   */
+  private static final int MAX_BATCH_SIZE = 100;
+
   private final UserRepository repository;
 
-  public UserService(UserRepository repository) {
+  private final CountCache countCache;
+
+  private final UserCache userCache;
+
+  public UserService(UserRepository repository, CountCache countCache, UserCache userCache) {
     this.repository = repository;
+    this.countCache = countCache;
+    this.userCache = userCache;
   }
 
   public Mono<UserDto> getUser(String userName) {
-    return repository.findByUsername(userName).map(this::toDto);
+    return userCache.findByUsername(userName).map(UserService::toDto);
+  }
+
+  /**
+   * User with his borrowed books, read with one query joining users, loans and books.
+   */
+  public Mono<UserDto> getUserWithLoans(String userName) {
+    return findWithLoans(List.of(userName)).next();
+  }
+
+  /**
+   * Several users with their borrowed books, read with one query joining users, loans and books.
+   *
+   * @return the existing users in request order, unknown userNames are skipped
+   * @throws IllegalArgumentException (as error signal) if there are too many or empty userNames
+   */
+  public Flux<UserDto> getUsersWithLoans(List<String> userNames) {
+    if (userNames.size() > MAX_BATCH_SIZE || userNames.stream().anyMatch(name -> name == null || name.isBlank())) {
+      return Flux.error(new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " non-empty userNames allowed"));
+    }
+    if (userNames.isEmpty()) {
+      return Flux.empty();
+    }
+
+    List<String> distinctNames = userNames.stream().distinct().toList();
+    return findWithLoans(distinctNames)
+        .collectMap(UserDto::userName)
+        .flatMapIterable(users -> distinctNames.stream().filter(users::containsKey).map(users::get).toList());
+  }
+
+  /**
+   * Folds the consecutive rows of each user into one user with loans, while the rows are read.
+   */
+  private Flux<UserDto> findWithLoans(Collection<String> userNames) {
+    return repository.findAllWithLoansByUsernameIn(userNames)
+        .bufferUntilChanged(UserWithLoanProjection::getUserId)
+        .map(UserService::toDto);
+  }
+
+  /**
+   * Searches users by userName, firstName, lastName and email, ordered by the sort field in the given direction. With
+   * a cursor taken from the {@code nextCursor} of a previous page, the page is located by seeking past the last element
+   * of that page instead of by its number. The count mode decides how the totals are determined.
+   *
+   * @throws IllegalArgumentException (as error signal) if the cursor is invalid
+   */
+  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy,
+      Direction direction, String cursor, CountMode countMode) {
+
+    return Mono.defer(() -> {
+      String search = StringUtils.hasText(searchString) ? searchString.trim() : null;
+      PageCursor after = StringUtils.hasText(cursor) ? PageCursor.decode(cursor, sortBy, direction) : null;
+
+      int pageNumber = after != null ? after.page() : page;
+      long offset = (long) pageNumber * size;
+      Flux<UserEntity> rows = after != null
+          ? repository.searchUsersAfter(search, sortBy, direction, after.value(), after.id(), size + 1)
+          : repository.searchUsers(search, sortBy, direction, offset, size + 1);
+
+      return rows.collectList()
+          .zipWith(total(search, countMode).defaultIfEmpty(PageResponses.UNCOUNTED))
+          .map(tuple -> {
+            List<UserEntity> content = tuple.getT1();
+            long total = countMode == CountMode.ESTIMATED
+                ? Math.max(tuple.getT2(), PageResponses.lowerBound(offset, content))
+                : tuple.getT2();
+            return PageResponses.of(content, pageNumber, size, total, UserService::toDto,
+                last -> nextCursor(last, pageNumber, sortBy, direction));
+          });
+    });
   }
 
-  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy) {
+  /**
+   * Streams the users of a page like {@link #searchUsers}, without count and page envelope. Users are emitted as the
+   * database returns them instead of being collected first.
+   *
+   * @throws IllegalArgumentException (as error signal) if the cursor is invalid
+   */
+  public Flux<UserDto> streamUsers(String searchString, int page, int size, String sortBy, Direction direction,
+      String cursor) {
+
+    return Flux.defer(() -> {
+      String search = StringUtils.hasText(searchString) ? searchString.trim() : null;
+      PageCursor after = StringUtils.hasText(cursor) ? PageCursor.decode(cursor, sortBy, direction) : null;
+
+      Flux<UserEntity> rows = after != null
+          ? repository.searchUsersAfter(search, sortBy, direction, after.value(), after.id(), size)
+          : repository.searchUsers(search, sortBy, direction, (long) page * size, size);
+      return rows.map(UserService::toDto);
+    });
+  }
+
+  /**
+   * Total of a search according to the count mode, empty if the count is not known.
+   */
+  private Mono<Long> total(String search, CountMode countMode) {
+    return switch (countMode) {
+      case EXACT -> countCache.exact(CountCache.USERS, search, () -> repository.countUsers(search));
+      case ESTIMATED -> countCache.estimated(CountCache.USERS, search, () -> repository.countUsers(search),
+          () -> search == null ? repository.estimateUserCount() : Mono.empty());
+      case NONE -> Mono.empty();
+    };
+  }
+
+  static String nextCursor(UserEntity last, int pageNumber, String sortBy, Direction direction) {
+    String value = switch (sortBy) {
+      case "userName" -> last.username;
+      case "lastName" -> last.lastname;
+      case "email" -> last.email;
+      default -> last.firstname;
+    };
+    return new PageCursor(pageNumber + 1, sortBy, direction, value, last.id).encode();
+  }
 
-    return repository.searchUsersPaged(searchString, page, size, sortBy)
-        .map(p -> new PageResponseDto<>(
-            p.getContent().stream().map(this::toDto).collect(Collectors.toList()),
-            p.getNumber(),
-            p.getSize(),
-            p.getTotalPages(),
-            p.getTotalElements(),
-            p.isFirst(),
-            p.isLast(),
-            p.getNumberOfElements(),
-            p.isEmpty()
-        ));
+  static UserDto toDto(List<UserWithLoanProjection> rows) {
+    UserWithLoanProjection user = rows.getFirst();
+    List<LoanDto> loans = rows.stream()
+        .filter(row -> row.getLoanId() != null)
+        .map(row -> new LoanDto(row.getLoanId(),
+            new BookDto(
+                row.getIsbn(),
+                row.getTitle(),
+                row.getAuthor(),
+                row.getPublishedAt(),
+                row.getPublisher(),
+                row.getLanguage(),
+                row.getPages(),
+                row.getDescription(),
+                null
+            ),
+            row.getBorrowedAt(),
+            row.getReturnedAt()))
+        .toList();
+    return new UserDto(user.getUsername(), user.getFirstname(), user.getLastname(), user.getEmail(), loans);
   }
 
-  private UserDto toDto(UserEntity e) {
+  static UserDto toDto(UserEntity e) {
     return new UserDto(
         e.username,
         e.firstname,
@@ -0,0 +1,68 @@
+package org.kergru.library.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.http.CacheControl;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Conditional GET with weak entity tags. Responses carry an {@code ETag} and {@code Cache-Control: private, no-cache},
+ * so clients keep them but revalidate with {@code If-None-Match} on every use, which is answered with a 304 Not
+ * Modified without body if the tag still matches.
+ */
+public final class ConditionalGet {
+
+  private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+  private ConditionalGet() {
+  }
+
+  /**
+   * Answers 304 if the entity tag, known before the body is read, matches the request, so the body is not read at all.
+   */
+  public static <T> Mono<T> withETag(ServerWebExchange exchange, String etag, Supplier<Mono<T>> body) {
+    return Mono.defer(() -> {
+      exchange.getResponse().getHeaders().setCacheControl(CACHE_CONTROL);
+      return exchange.checkNotModified(etag) ? Mono.empty() : body.get();
+    });
+  }
+
+  /**
+   * Answers 304 if the entity tag derived from the body matches the request, which saves serialization and transfer.
+   */
+  public static <T> Mono<T> withETag(ServerWebExchange exchange, Mono<T> body, Function<T, String> etag) {
+    return body.flatMap(value -> {
+      exchange.getResponse().getHeaders().setCacheControl(CACHE_CONTROL);
+      return exchange.checkNotModified(etag.apply(value)) ? Mono.<T>empty() : Mono.just(value);
+    });
+  }
+
+  /**
+   * Weak entity tag of the given parts.
+   */
+  public static String weak(Object... parts) {
+    StringBuilder tag = new StringBuilder("W/\"");
+    for (int i = 0; i < parts.length; i++) {
+      tag.append(i > 0 ? "-" : "").append(parts[i]);
+    }
+    return tag.append('"').toString();
+  }
+
+  /**
+   * Weak entity tag of a value from the SHA-256 of its JSON, so that any change of the representation changes the tag.
+   */
+  public static String ofContent(String kind, Object value, ObjectMapper objectMapper) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(value));
+      return weak(kind, Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Entity tag could not be computed", e);
+    }
+  }
+}
@@ -58,4 +58,46 @@ class LibraryBackendApplicationTests {
   @Test
   void contextLoads() {
   }
+
+  @Test
+  void expectHealthShouldBePublic() {
+
+    webTestClient
+        .get()
+        .uri("/actuator/health")
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void expectMetricsWithoutTokenShouldReturnUnauthorized() {
+
+    webTestClient
+        .get()
+        .uri("/actuator/metrics")
+        .exchange()
+        .expectStatus().isUnauthorized();
+  }
+
+  @Test
+  void expectMetricsWithNotRoleLibrarianShouldReturnForbidden() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/actuator/metrics")
+        .exchange()
+        .expectStatus().isForbidden();
+  }
+
+  @Test
+  void expectMetricsWithRoleLibrarianShouldReturnOk() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/actuator/metrics")
+        .exchange()
+        .expectStatus().isOk();
+  }
 }
@@ -0,0 +1,82 @@
+package org.kergru.library.books.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kergru.library.books.repository.BookRepository;
+import org.kergru.library.books.repository.BookWithLoanProjection;
+import org.kergru.library.loans.repository.LoanRepository;
+import org.kergru.library.model.LoanStatusDto;
+import reactor.core.publisher.Mono;
+
+public class BookCacheTest {
+
+  private BookRepository bookRepository;
+
+  private LoanRepository loanRepository;
+
+  private BookCache bookCache;
+
+  @BeforeEach
+  public void setUp() {
+    bookRepository = mock(BookRepository.class);
+    loanRepository = mock(LoanRepository.class);
+    bookCache = new BookCache(bookRepository, loanRepository, new SimpleMeterRegistry(),
+        Duration.ofHours(1), Duration.ofMinutes(1), 100);
+  }
+
+  @Test
+  public void expectLoanClosedMakesBookAvailableWithoutKnowingTheLoan() {
+    bookCache.loanOpened(1001L, 1L, new LoanStatusDto(false, 1L, Instant.now()));
+    assertThat(bookCache.getStatus(1001L).block().available()).isFalse();
+
+    // loan 2 was opened elsewhere and never seen by this cache
+    bookCache.loanClosed(2L, 1001L);
+
+    assertThat(bookCache.getStatus(1001L).block()).isEqualTo(BookCache.AVAILABLE);
+    verifyNoInteractions(loanRepository);
+  }
+
+  @Test
+  public void expectOpenLoanBookIsKnownOnceTheBookWasLoaded() {
+    BookWithLoanProjection book = new BookWithLoanProjection();
+    book.setId(1001L);
+    book.setIsbn("9780132350884");
+    book.setTitle("Clean Code");
+    book.setLoanId(7L);
+    book.setBorrowerId(1L);
+    book.setBorrowedAt(Instant.now());
+    when(bookRepository.findByIsbn("9780132350884")).thenReturn(Mono.just(book));
+
+    assertThat(bookCache.getOpenLoanBook(7L)).isEmpty();
+    bookCache.getMetadata("9780132350884").block();
+
+    assertThat(bookCache.getOpenLoanBook(7L)).get()
+        .satisfies(cached -> {
+          assertThat(cached.id()).isEqualTo(1001L);
+          assertThat(cached.book().isbn()).isEqualTo("9780132350884");
+        });
+
+    bookCache.loanClosed(7L, 1001L);
+    assertThat(bookCache.getOpenLoanBook(7L)).isEmpty();
+  }
+
+  @Test
+  public void expectLoanEventsChangeCatalogueVersion() {
+    String version = bookCache.catalogueVersion();
+
+    bookCache.loanOpened(1001L, 1L, new LoanStatusDto(false, 1L, Instant.now()));
+    String opened = bookCache.catalogueVersion();
+    bookCache.loanClosed(1L, 1001L);
+
+    assertThat(opened).isNotEqualTo(version);
+    assertThat(bookCache.catalogueVersion()).isNotEqualTo(opened);
+  }
+}
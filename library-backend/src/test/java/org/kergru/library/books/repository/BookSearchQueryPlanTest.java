@@ -0,0 +1,89 @@
+package org.kergru.library.books.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kergru.library.paging.SearchStatements.Paging;
+import org.springframework.data.domain.Sort.Direction;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+/**
+ * Verifies that the unfiltered book searches are delivered presorted by an index instead of sorting all books.
+ */
+@Testcontainers
+public class BookSearchQueryPlanTest {
+
+  @Container
+  private static final MySQLContainer<?> mysqlContainer = new MySQLContainer<>("mysql:8.0")
+      .withDatabaseName("library")
+      .withUsername("admin")
+      .withPassword("pwd")
+      .withCopyFileToContainer(
+          MountableFile.forHostPath("../docker/mysql-init/library_schema.sql"),
+          "/docker-entrypoint-initdb.d/library_schema.sql"
+      )
+      .withStartupTimeout(Duration.ofMinutes(2));
+
+  @BeforeAll
+  static void seedBooks() throws Exception {
+    try (Connection connection = mysqlContainer.createConnection(""); Statement statement = connection.createStatement()) {
+      statement.execute("""
+          INSERT INTO books (isbn, title, author, published_at, publisher, language, description, pages)
+          WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 1000)
+          SELECT CONCAT('97800000', LPAD(n, 5, '0')), CONCAT('Title ', LPAD(n, 4, '0')),
+                 CONCAT('Author ', LPAD(n % 97, 2, '0')), 2000, 'Publisher', 'EN', 'Description', 100
+          FROM seq
+          """);
+      statement.execute("ANALYZE TABLE books, loans");
+    }
+  }
+
+  @Test
+  public void expectFirstPageIsReadInIndexOrder() throws Exception {
+    for (String sortBy : List.of("title", "author", "isbn")) {
+      for (Direction direction : Direction.values()) {
+        String sql = BookRepositoryCustomImpl.STATEMENTS.search(sortBy, direction, false, Paging.OFFSET);
+        assertThat(explain(bind(sql, "0", "0"))).as(sortBy + " " + direction).doesNotContain("Using filesort");
+      }
+    }
+  }
+
+  @Test
+  public void expectKeysetPageIsReadInIndexOrder() throws Exception {
+    for (Direction direction : Direction.values()) {
+      String sql = BookRepositoryCustomImpl.STATEMENTS.search("title", direction, false, Paging.KEYSET);
+      assertThat(explain(bind(sql, "'Title 0500'", "500"))).as("title " + direction)
+          .doesNotContain("Using filesort");
+    }
+  }
+
+  private static String bind(String sql, String afterValue, String afterId) {
+    return sql
+        .replace(":limit", "20")
+        .replace(":offset", "0")
+        .replace(":afterValue", afterValue)
+        .replace(":afterId", afterId);
+  }
+
+  private static String explain(String sql) throws Exception {
+    List<String> rows = new ArrayList<>();
+    try (Connection connection = mysqlContainer.createConnection("");
+        Statement statement = connection.createStatement();
+        ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+      while (plan.next()) {
+        rows.add(plan.getString("table") + ": " + plan.getString("key") + ", " + plan.getString("Extra"));
+      }
+    }
+    return String.join("\n", rows);
+  }
+}
@@ -2,19 +2,33 @@ package org.kergru.library.books.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.kergru.library.JwtTestUtils.createMockJwt;
+import static org.kergru.library.JwtTestUtils.createMockJwtWithRoleLibrarian;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.kergru.library.books.cache.BookCache;
 import org.kergru.library.books.service.BookService;
 import org.kergru.library.loans.repository.LoanRepository;
 import org.kergru.library.loans.service.LoanService;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BorrowResultDto;
+import org.kergru.library.model.ImportBatchResultDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.ReturnResultDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -24,6 +38,7 @@ import org.testcontainers.containers.MySQLR2DBCDatabaseContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.MountableFile;
+import reactor.test.StepVerifier;
 
 @AutoConfigureWebTestClient
 @Testcontainers
@@ -66,9 +81,16 @@ public class BookControllerTest {
   @Autowired
   private LoanRepository loanRepository;
 
+  @Autowired
+  private BookCache bookCache;
+
+  @Autowired
+  private DatabaseClient databaseClient;
+
   @BeforeEach
   public void afterEach() {
-    loanRepository.deleteAll().subscribe(); //filled because of docker init
+    loanRepository.deleteAll().block(); //filled because of docker init
+    bookCache.invalidateAll(); // loans were deleted behind the cache
   }
 
   @Test
@@ -111,6 +133,154 @@ public class BookControllerTest {
         });
   }
 
+  @Test
+  @WithMockUser
+  public void expectBorrowOfBorrowedBookShouldBeRejected() throws Exception {
+    assertThat(loanService.borrowBook("9780201633610", "demo_user_1").block()).isNotNull();
+
+    StepVerifier.create(loanService.borrowBook("9780201633610", "demo_user_2"))
+        .expectError(IllegalStateException.class)
+        .verify();
+    StepVerifier.create(loanService.borrowBook("9780134685991", "UNKNOWN_USER"))
+        .expectError(NoSuchElementException.class)
+        .verify();
+  }
+
+  @Test
+  @WithMockUser
+  public void expectReturnedBookShouldBeAvailableAgain() throws Exception {
+    assertThat(bookService.findByIsbn("9780134685991").block().loanStatus().available()).isTrue();
+
+    var loan = loanService.borrowBook("9780134685991", "demo_user_1").block();
+    assertThat(loan).isNotNull();
+    assertThat(bookService.findByIsbn("9780134685991").block().loanStatus().available()).isFalse();
+
+    StepVerifier.create(loanService.returnBook(loan.id(), "demo_user_2"))
+        .expectError(NoSuchElementException.class)
+        .verify();
+    loanService.returnBook(loan.id(), "demo_user_1").block();
+    StepVerifier.create(loanService.returnBook(loan.id(), "demo_user_1"))
+        .expectError(IllegalStateException.class)
+        .verify();
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books/9780134685991")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(BookDto.class)
+        .value(book -> assertThat(book.loanStatus().available()).isTrue());
+  }
+
+  @Test
+  @WithMockUser
+  public void expectBatchBorrowAndReturnShouldReportResultPerItem() throws Exception {
+    assertThat(loanService.borrowBook("9780201633610", "demo_user_2").block()).isNotNull();
+
+    var borrowed = webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .post()
+        .uri("/library/users/demo_user_1/loans:batch")
+        .bodyValue(List.of("9780132350884", "9780201633610", "0000000000000", "9780132350884"))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(BorrowResultDto.class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(borrowed).extracting(BorrowResultDto::status).containsExactly(200, 409, 404, 409);
+    assertThat(borrowed.getFirst().loan().book().isbn()).isEqualTo("9780132350884");
+    assertThat(bookService.findByIsbn("9780132350884").block().loanStatus().available()).isFalse();
+
+    Long loanId = borrowed.getFirst().loan().id();
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .post()
+        .uri("/library/users/demo_user_1/loans:return")
+        .bodyValue(List.of(loanId, loanId, -1L))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(ReturnResultDto.class)
+        .value(results -> {
+          assertThat(results).extracting(ReturnResultDto::status).containsExactly(200, 409, 404);
+          assertThat(results).extracting(ReturnResultDto::isbn).containsExactly("9780132350884", "9780132350884", null);
+        });
+
+    assertThat(bookService.findByIsbn("9780132350884").block().loanStatus().available()).isTrue();
+  }
+
+  @Test
+  @WithMockUser
+  public void expectGetBookWithMatchingETagShouldReturnNotModifiedUntilBookIsBorrowed() throws Exception {
+    String etag = webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books/9780132350884")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().cacheControl(CacheControl.noCache().cachePrivate())
+        .returnResult(BookDto.class)
+        .getResponseHeaders()
+        .getETag();
+    assertThat(etag).isNotNull();
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books/9780132350884")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+
+    loanService.borrowBook("9780132350884", "demo_user_1").block();
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books/9780132350884")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().value(HttpHeaders.ETAG, newEtag -> assertThat(newEtag).isNotEqualTo(etag));
+  }
+
+  @Test
+  @WithMockUser
+  public void expectSearchBooksWithInvalidCursorAndMatchingETagShouldReturnBadRequest() throws Exception {
+    String etag = webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books?size=3")
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(PageResponseDto.class)
+        .getResponseHeaders()
+        .getETag();
+    assertThat(etag).isNotNull();
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books?size=3&cursor=invalid")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  @WithMockUser
+  public void expectSearchBooksWithUnknownSortFieldShouldReturnBadRequest() throws Exception {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books?searchString=Clean&sortBy=publisher")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
   @Test
   @WithMockUser
   public void expectSearchBooksShouldReturnBooks() throws Exception {
@@ -130,4 +300,94 @@ public class BookControllerTest {
           assertThat(response.content().getFirst().loanStatus().available()).isEqualTo(true);
         });
   }
+
+  @Test
+  @WithMockUser
+  public void expectStreamBooksShouldReturnNdjson() throws Exception {
+
+    var books = webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books?size=3&sortBy=title")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .returnResult(BookDto.class)
+        .getResponseBody();
+
+    StepVerifier.create(books)
+        .assertNext(book -> assertThat(book.title()).isEqualTo("Clean Architecture"))
+        .expectNextCount(2)
+        .verifyComplete();
+  }
+
+  @Test
+  public void expectExportBooksShouldReturnWholeCatalogueAsGzippedCsv() throws Exception {
+
+    byte[] export = webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/books/export?format=CSV&gzip=true")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .expectBody(byte[].class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(export).isNotNull();
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(export))) {
+      var lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+      assertThat(lines.getFirst()).startsWith("isbn,title,author");
+      assertThat(lines).hasSize(11);
+      assertThat(lines).anyMatch(line -> line.startsWith("9780132350884,Clean Code,"));
+    }
+  }
+
+  @Test
+  public void expectExportBooksShouldBeForbiddenForUsers() throws Exception {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/books/export")
+        .exchange()
+        .expectStatus().isForbidden();
+  }
+
+  @Test
+  public void expectImportBooksShouldUpsertValidRowsAndReportInvalidRows() throws Exception {
+    String csv = """
+        isbn,title,author,publishedAt,publisher,language,pages,description
+        9783000000001,"Import, Test",Import Author,2024,Import Verlag,DE,123,"Zeile 1
+        Zeile 2"
+        ,Missing Isbn,Someone,2024,Verlag,DE,10,
+        """;
+
+    try {
+      webTestClient
+          .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+          .post()
+          .uri("/library/books/import")
+          .contentType(new MediaType("text", "csv"))
+          .bodyValue(csv)
+          .exchange()
+          .expectStatus().isOk()
+          .expectBodyList(ImportBatchResultDto.class)
+          .value(results -> {
+            assertThat(results).hasSize(1);
+            assertThat(results.getFirst().imported()).isEqualTo(1);
+            assertThat(results.getFirst().rejected()).isEqualTo(1);
+            assertThat(results.getFirst().errors()).singleElement().asString().startsWith("Row 2:");
+          });
+
+      var book = bookService.findByIsbn("9783000000001").block();
+      assertThat(book).isNotNull();
+      assertThat(book.title()).isEqualTo("Import, Test");
+      assertThat(book.description()).isEqualTo("Zeile 1\nZeile 2");
+    } finally {
+      databaseClient.sql("DELETE FROM books WHERE isbn = '9783000000001'").then().block();
+    }
+  }
 }
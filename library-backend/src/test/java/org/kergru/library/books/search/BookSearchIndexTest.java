@@ -0,0 +1,107 @@
+package org.kergru.library.books.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kergru.library.books.repository.BookEntity;
+import org.kergru.library.books.repository.BookRepository;
+import org.kergru.library.books.search.BookSearchIndex.SearchHit;
+import org.kergru.library.books.search.BookSearchIndex.SearchResult;
+
+public class BookSearchIndexTest {
+
+  private BookSearchIndex index;
+
+  @BeforeEach
+  public void setUp() {
+    index = new BookSearchIndex(mock(BookRepository.class), true, 1000);
+    index.index(book(1001L, "9780132350884", "Clean Code", "Robert C. Martin"));
+    index.index(book(1006L, "9780134494166", "Clean Architecture", "Robert C. Martin"));
+    index.index(book(1002L, "9780134685991", "Effective Java", "Joshua Bloch"));
+  }
+
+  @Test
+  public void expectAllTokensMustMatchAsPrefix() {
+    assertThat(ids(index.search("clean arch", "title", 0, 10))).containsExactly(1006L);
+    assertThat(ids(index.search("code CLEAN", "title", 0, 10))).containsExactly(1001L);
+    assertThat(ids(index.search("mart", "title", 0, 10))).containsExactly(1006L, 1001L);
+    assertThat(ids(index.search("clean java", "title", 0, 10))).isEmpty();
+  }
+
+  @Test
+  public void expectSearchByIsbnPrefix() {
+    assertThat(ids(index.search("97801346", "isbn", 0, 10))).containsExactly(1002L);
+  }
+
+  @Test
+  public void expectRelevanceRanksTitleMatchesAboveAuthorMatches() {
+    index.index(book(1011L, "9780000000001", "Martin Luther", "Someone Else"));
+
+    assertThat(ids(index.search("martin", "relevance", 0, 10))).first().isEqualTo(1011L);
+  }
+
+  @Test
+  public void expectReindexAndRemoveKeepIndexCurrent() {
+    index.index(book(1002L, "9780134685991", "Effective Kotlin", "Marcin Moskala"));
+    assertThat(ids(index.search("java", "title", 0, 10))).isEmpty();
+    assertThat(ids(index.search("kotlin", "title", 0, 10))).containsExactly(1002L);
+
+    index.remove(1001L);
+    assertThat(ids(index.search("clean", "title", 0, 10))).containsExactly(1006L);
+  }
+
+  @Test
+  public void expectRepeatedSearchSeesChangesOfIndex() {
+    assertThat(ids(index.search("clean", "title", 0, 10))).containsExactly(1006L, 1001L);
+    assertThat(ids(index.search("CLEAN", "title", 1, 10))).containsExactly(1001L);
+
+    index.index(book(1012L, "9780135781869", "Clean Agile", "Robert C. Martin"));
+    assertThat(ids(index.search("clean", "title", 0, 10))).containsExactly(1012L, 1006L, 1001L);
+
+    index.remove(1006L);
+    assertThat(ids(index.search("clean", "title", 0, 10))).containsExactly(1012L, 1001L);
+  }
+
+  @Test
+  public void expectTitlesOrderedIgnoringCaseAndAccentsLikeTheDatabase() {
+    index.index(book(1013L, "9780000000013", "Élan Vital", "Henri Bergson"));
+    index.index(book(1014L, "9780000000014", "eclipse", "Henri Bergson"));
+    index.index(book(1015L, "9780000000015", "Ezra", "Henri Bergson"));
+
+    assertThat(ids(index.search("henri", "title", 0, 10))).containsExactly(1014L, 1013L, 1015L);
+  }
+
+  @Test
+  public void expectUnknownSortFieldOrdersByTitleLikeTheDatabase() {
+    assertThat(ids(index.search("robert", "publisher", 0, 10))).containsExactly(1006L, 1001L);
+    assertThat(index.search("robert", "publisher", 0, 1).hits().getFirst().sortValue())
+        .isEqualTo("Clean Architecture");
+  }
+
+  @Test
+  public void expectSearchAfterContinuesBehindCursorPosition() {
+    var first = index.search("robert", "title", 0, 1);
+    assertThat(first.total()).isEqualTo(2);
+    assertThat(first.hits()).containsExactly(new SearchHit(1006L, "Clean Architecture"));
+
+    var second = index.searchAfter("robert", "title", "Clean Architecture", 1006L, 1);
+    assertThat(ids(second)).containsExactly(1001L);
+    assertThat(index.searchAfter("robert", "title", "Clean Code", 1001L, 1).hits()).isEmpty();
+  }
+
+  private static List<Long> ids(SearchResult result) {
+    return result.hits().stream().map(SearchHit::id).toList();
+  }
+
+  private static BookEntity book(Long id, String isbn, String title, String author) {
+    BookEntity book = new BookEntity();
+    book.id = id;
+    book.isbn = isbn;
+    book.title = title;
+    book.author = author;
+    return book;
+  }
+}
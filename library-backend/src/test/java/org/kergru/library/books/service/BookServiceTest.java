@@ -0,0 +1,50 @@
+package org.kergru.library.books.service;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.kergru.library.books.cache.BookCache;
+import org.kergru.library.books.repository.BookRepository;
+import org.kergru.library.books.repository.BookWithLoanProjection;
+import org.kergru.library.books.search.BookSearchIndex;
+import org.kergru.library.paging.CountCache;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class BookServiceTest {
+
+  @Test
+  public void expectExportReadsOnlyOneChunkAheadOfSlowClient() {
+    BookRepository bookRepository = mock(BookRepository.class);
+    // an endless catalogue, every chunk is full
+    when(bookRepository.findAllWithJoinLoansAfterId(anyLong(), anyInt())).thenAnswer(invocation -> {
+      long afterId = invocation.getArgument(0);
+      int limit = invocation.getArgument(1);
+      return Flux.fromStream(LongStream.rangeClosed(afterId + 1, afterId + limit).mapToObj(BookServiceTest::book));
+    });
+    BookService bookService = new BookService(bookRepository, mock(BookSearchIndex.class), mock(CountCache.class),
+        mock(BookCache.class), new SimpleMeterRegistry());
+
+    StepVerifier.create(bookService.exportBooks(), 1)
+        .expectNextCount(1)
+        .thenCancel()
+        .verify();
+
+    verify(bookRepository, atMost(2)).findAllWithJoinLoansAfterId(anyLong(), anyInt());
+  }
+
+  private static BookWithLoanProjection book(long id) {
+    BookWithLoanProjection book = new BookWithLoanProjection();
+    book.setId(id);
+    book.setIsbn(Long.toString(id));
+    book.setTitle("Book " + id);
+    return book;
+  }
+}
@@ -0,0 +1,80 @@
+package org.kergru.library.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class CachingJwtAuthenticationManagerTest {
+
+  private final AtomicInteger verifications = new AtomicInteger();
+
+  @Test
+  public void expectTokenIsVerifiedOnceAndCachedAtMostMaxTtl() throws Exception {
+    var manager = manager(expiringAt(Instant.now().plus(Duration.ofHours(1))), Duration.ofMillis(100));
+
+    manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+    manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+    assertThat(verifications).hasValue(1);
+
+    Thread.sleep(200); // longer than max ttl, much shorter than the token lifetime
+    manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+    assertThat(verifications).hasValue(2);
+  }
+
+  @Test
+  public void expectTokenIsNotCachedBeyondItsExpiry() throws Exception {
+    var manager = manager(expiringAt(Instant.now().plusMillis(100)), Duration.ofHours(1));
+
+    manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+    Thread.sleep(200); // token expired, max ttl not reached
+    manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+
+    assertThat(verifications).hasValue(2);
+  }
+
+  @Test
+  public void expectFailedVerificationIsNotCached() {
+    var authentication = expiringAt(Instant.now().plus(Duration.ofHours(1)));
+    ReactiveAuthenticationManager delegate = token -> verifications.incrementAndGet() == 1
+        ? Mono.error(new InvalidBearerTokenException("JWK set not available"))
+        : Mono.just(authentication);
+    var manager = new CachingJwtAuthenticationManager(delegate, Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+
+    StepVerifier.create(manager.authenticate(new BearerTokenAuthenticationToken("token")))
+        .expectError(InvalidBearerTokenException.class)
+        .verify();
+    StepVerifier.create(manager.authenticate(new BearerTokenAuthenticationToken("token")))
+        .expectNext(authentication)
+        .verifyComplete();
+
+    assertThat(verifications).hasValue(2);
+  }
+
+  private CachingJwtAuthenticationManager manager(JwtAuthenticationToken authentication, Duration maxTtl) {
+    ReactiveAuthenticationManager delegate = token -> {
+      verifications.incrementAndGet();
+      return Mono.just(authentication);
+    };
+    return new CachingJwtAuthenticationManager(delegate, maxTtl, 100, new SimpleMeterRegistry());
+  }
+
+  private static JwtAuthenticationToken expiringAt(Instant expiresAt) {
+    return new JwtAuthenticationToken(Jwt.withTokenValue("token")
+        .header("alg", "RS256")
+        .subject("demo_user_1")
+        .issuedAt(Instant.now())
+        .expiresAt(expiresAt)
+        .build());
+  }
+}
@@ -0,0 +1,70 @@
+package org.kergru.library.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+public class JwkSetCacheTest {
+
+  private static final String JWK_SET_URI = "http://localhost:8085/realms/library/protocol/openid-connect/certs";
+
+  private final AtomicInteger fetches = new AtomicInteger();
+
+  @Test
+  public void expectUnknownKeyIdFetchesOncePerIntervalWhileIssuerIsDown() {
+    WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+      fetches.incrementAndGet();
+      return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+    });
+    JwkSetCache jwkSetCache = new JwkSetCache(webClient, JWK_SET_URI, Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+    assertThat(jwkSetCache.keys(jwt("forged-1")).collectList().block()).isEmpty();
+    assertThat(jwkSetCache.keys(jwt("forged-2")).collectList().block()).isEmpty();
+    assertThat(jwkSetCache.keys(jwt("forged-3")).collectList().block()).isEmpty();
+
+    assertThat(fetches).hasValue(1);
+  }
+
+  @Test
+  public void expectUnknownKeyIdPicksUpRotatedKey() throws JOSEException {
+    RSAKey rotated = new RSAKeyGenerator(2048).keyID("rotated").generate();
+    WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+      fetches.incrementAndGet();
+      return Mono.just(ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .body(new JWKSet(rotated.toPublicJWK()).toString())
+          .build());
+    });
+    JwkSetCache jwkSetCache = new JwkSetCache(webClient, JWK_SET_URI, Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+    assertThat(jwkSetCache.keys(jwt("rotated")).collectList().block())
+        .singleElement()
+        .satisfies(key -> assertThat(key.getKeyID()).isEqualTo("rotated"));
+    // known keys are served from memory, unknown ones wait for the interval
+    assertThat(jwkSetCache.keys(jwt("rotated")).collectList().block()).hasSize(1);
+    assertThat(jwkSetCache.keys(jwt("forged")).collectList().block()).isEmpty();
+
+    assertThat(fetches).hasValue(1);
+  }
+
+  private static SignedJWT jwt(String keyId) {
+    return new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keyId).build(),
+        new JWTClaimsSet.Builder().subject("demo_user_1").build());
+  }
+}
@@ -0,0 +1,83 @@
+package org.kergru.library.users.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kergru.library.users.repository.UserEntity;
+import org.kergru.library.users.repository.UserRepository;
+import reactor.core.publisher.Mono;
+
+public class UserCacheTest {
+
+  private UserRepository userRepository;
+
+  private UserCache userCache;
+
+  @BeforeEach
+  public void setUp() {
+    userRepository = mock(UserRepository.class);
+    userCache = new UserCache(userRepository, new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ofMillis(100),
+        100);
+  }
+
+  @Test
+  public void expectKnownUserIsReadOnce() throws Exception {
+    when(userRepository.findByUsername("demo_user_1")).thenReturn(Mono.just(user(1L, "demo_user_1")));
+
+    assertThat(userCache.findByUsername("demo_user_1").block().id).isEqualTo(1L);
+    Thread.sleep(200); // longer than the negative ttl
+    assertThat(userCache.findByUsername("demo_user_1").block().id).isEqualTo(1L);
+
+    verify(userRepository, times(1)).findByUsername("demo_user_1");
+  }
+
+  @Test
+  public void expectUnknownUserIsCachedForNegativeTtl() throws Exception {
+    when(userRepository.findByUsername("new_user"))
+        .thenReturn(Mono.empty())
+        .thenReturn(Mono.just(user(7L, "new_user")));
+
+    assertThat(userCache.findByUsername("new_user").blockOptional()).isEmpty();
+    assertThat(userCache.findByUsername("new_user").blockOptional()).isEmpty();
+    verify(userRepository, times(1)).findByUsername("new_user");
+
+    Thread.sleep(200); // the user was created meanwhile, the negative entry expired
+    assertThat(userCache.findByUsername("new_user").block().id).isEqualTo(7L);
+    verify(userRepository, times(2)).findByUsername("new_user");
+  }
+
+  @Test
+  public void expectInvalidatedUserIsReadAgain() {
+    when(userRepository.findByUsername("demo_user_1"))
+        .thenReturn(Mono.just(user(1L, "demo_user_1")))
+        .thenReturn(Mono.empty());
+    when(userRepository.findByUsername("demo_user_2")).thenReturn(Mono.just(user(2L, "demo_user_2")));
+
+    userCache.findByUsername("demo_user_1").block();
+    userCache.findByUsername("demo_user_2").block();
+
+    userCache.invalidate("demo_user_1"); // deleted
+    assertThat(userCache.findByUsername("demo_user_1").blockOptional()).isEmpty();
+    assertThat(userCache.findByUsername("demo_user_2").block().id).isEqualTo(2L);
+    verify(userRepository, times(2)).findByUsername("demo_user_1");
+    verify(userRepository, times(1)).findByUsername("demo_user_2");
+
+    userCache.invalidateAll();
+    userCache.findByUsername("demo_user_2").block();
+    verify(userRepository, times(2)).findByUsername("demo_user_2");
+  }
+
+  private static UserEntity user(Long id, String userName) {
+    UserEntity user = new UserEntity();
+    user.id = id;
+    user.username = userName;
+    return user;
+  }
+}
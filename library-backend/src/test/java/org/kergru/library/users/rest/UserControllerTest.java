@@ -5,6 +5,7 @@ import static org.kergru.library.JwtTestUtils.createMockJwt;
 import static org.kergru.library.JwtTestUtils.createMockJwtWithRoleLibrarian;
 
 import java.time.Duration;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.kergru.library.model.PageResponseDto;
 import org.kergru.library.model.UserDto;
@@ -99,6 +100,85 @@ public class UserControllerTest {
         });
   }
 
+  @Test
+  void expectSearchUsersWithCursorShouldContinueAfterPreviousPage() {
+
+    var firstPage = webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/users?size=2&sortBy=userName")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(new ParameterizedTypeReference<PageResponseDto<UserDto>>() {})
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(firstPage).isNotNull();
+    assertThat(firstPage.content()).extracting(UserDto::userName).containsExactly("demo_user_1", "demo_user_2");
+    assertThat(firstPage.nextCursor()).isNotNull();
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/users?size=2&sortBy=userName&cursor={cursor}", firstPage.nextCursor())
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(new ParameterizedTypeReference<PageResponseDto<UserDto>>() {})
+        .value(response -> {
+          assertThat(response.content()).extracting(UserDto::userName).containsExactly("demo_user_3", "librarian");
+          assertThat(response.number()).isEqualTo(1);
+          assertThat(response.last()).isTrue();
+          assertThat(response.nextCursor()).isNull();
+        });
+  }
+
+  @Test
+  void expectSearchUsersWithoutCountShouldOnlyReportWhetherThereIsANextPage() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/users?size=3&sortBy=userName&countMode=NONE")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(new ParameterizedTypeReference<PageResponseDto<UserDto>>() {})
+        .value(response -> {
+          assertThat(response.content()).extracting(UserDto::userName)
+              .containsExactly("demo_user_1", "demo_user_2", "demo_user_3");
+          assertThat(response.totalElements()).isEqualTo(-1);
+          assertThat(response.totalPages()).isEqualTo(-1);
+          assertThat(response.last()).isFalse();
+        });
+  }
+
+  @Test
+  void expectSearchUsersWithEstimatedCountShouldReportAtLeastTheRowsSeen() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/users?searchString=demo&size=2&sortBy=userName&countMode=ESTIMATED")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(new ParameterizedTypeReference<PageResponseDto<UserDto>>() {})
+        .value(response -> {
+          assertThat(response.content()).hasSize(2);
+          assertThat(response.totalElements()).isGreaterThanOrEqualTo(3);
+          assertThat(response.last()).isFalse();
+        });
+  }
+
+  @Test
+  void expectSearchUsersWithInvalidCursorShouldReturnBadRequest() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/users?sortBy=userName&cursor=invalid")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
   @Test
   void expectGetMyUserWithNotRoleLibrarianShouldReturnUser() {
 
@@ -136,4 +216,73 @@ public class UserControllerTest {
         .exchange()
         .expectStatus().isForbidden();
   }
+
+  @Test
+  void expectGetMyUserWithLoansShouldIncludeLoans() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/users/demo_user_1?include=loans")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(UserDto.class)
+        .value(user -> {
+          assertThat(user.userName()).isEqualTo("demo_user_1");
+          assertThat(user.loans()).isNotNull();
+          assertThat(user.loans()).allSatisfy(loan -> assertThat(loan.book().isbn()).isNotNull());
+        });
+  }
+
+  @Test
+  void expectGetUserWithUnknownIncludeShouldReturnBadRequest() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .get()
+        .uri("/library/users/demo_user_1?include=unknown")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void expectGetUsersBatchWithRoleLibrarianShouldReturnKnownUsersInRequestOrder() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .post()
+        .uri("/library/users/batch")
+        .bodyValue(List.of("demo_user_2", "UNKNOWN_USER", "demo_user_1"))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(UserDto.class)
+        .value(users -> {
+          assertThat(users).extracting(UserDto::userName).containsExactly("demo_user_2", "demo_user_1");
+          assertThat(users).allSatisfy(user -> assertThat(user.loans()).isNotNull());
+        });
+  }
+
+  @Test
+  void expectGetUsersBatchWithForeignUserWithNotRoleLibrarianShouldReturnForbidden() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .post()
+        .uri("/library/users/batch")
+        .bodyValue(List.of("demo_user_1", "demo_user_2"))
+        .exchange()
+        .expectStatus().isForbidden();
+  }
+
+  @Test
+  void expectReturnBooksForForeignUserWithRoleLibrarianShouldReturnForbidden() {
+
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .post()
+        .uri("/library/users/demo_user_1/loans:return")
+        .bodyValue(List.of(1L))
+        .exchange()
+        .expectStatus().isForbidden();
+  }
 }
@@ -0,0 +1,85 @@
+package org.kergru.library.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.kergru.library.security.LibraryPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.parameters.P;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+/**
+ * Compares the owner-or-librarian check of the user endpoints as {@code @PreAuthorize} expression, evaluated per call
+ * the way the method security interceptor does with a pre-parsed expression, with the check on the
+ * {@link LibraryPrincipal} including its resolution from the authentication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthorizationBenchmark {
+
+  private static final String OWNER_OR_LIBRARIAN =
+      "hasRole('LIBRARIAN') or #userName == authentication.principal.claims['preferred_username']";
+
+  /**
+   * demo_user_1 passes as owner, demo_user_2 is denied, so both branches of the expression are evaluated.
+   */
+  @Param({"demo_user_1", "demo_user_2"})
+  public String userName;
+
+  private final DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+
+  private Expression expression;
+
+  private SimpleMethodInvocation invocation;
+
+  private Authentication authentication;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    Jwt jwt = Jwt.withTokenValue("token")
+        .header("alg", "RS256")
+        .claim("sub", "demo_user_1")
+        .claim("preferred_username", "demo_user_1")
+        .build();
+    authentication = new JwtAuthenticationToken(jwt,
+        List.of(new SimpleGrantedAuthority("SCOPE_profile"), new SimpleGrantedAuthority("SCOPE_email")));
+
+    expression = expressionHandler.getExpressionParser().parseExpression(OWNER_OR_LIBRARIAN);
+    Method method = AuthorizationBenchmark.class.getMethod("getBorrowedBooksByUser", String.class);
+    invocation = new SimpleMethodInvocation(this, method, userName);
+  }
+
+  @Benchmark
+  public boolean preAuthorizeExpression() {
+    EvaluationContext context = expressionHandler.createEvaluationContext(() -> authentication, invocation);
+    return ExpressionUtils.evaluateAsBoolean(expression, context);
+  }
+
+  @Benchmark
+  public boolean libraryPrincipal() {
+    LibraryPrincipal principal = LibraryPrincipal.of(authentication);
+    return principal.librarian() || principal.isOwner(userName);
+  }
+
+  /**
+   * Target of the method invocation the expression is evaluated against, its parameter is bound as #userName.
+   */
+  public void getBorrowedBooksByUser(@P("userName") String userName) {
+  }
+}
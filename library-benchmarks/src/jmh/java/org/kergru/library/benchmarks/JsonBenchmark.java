@@ -0,0 +1,108 @@
+package org.kergru.library.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.LoanDto;
+import org.kergru.library.model.LoanStatusDto;
+import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson serialization and deserialization of a book search page and of a user with loans, with an object mapper
+ * configured like the one of Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+
+  private static final TypeReference<PageResponseDto<BookDto>> BOOK_PAGE = new TypeReference<>() {
+  };
+
+  @Param({"10", "100"})
+  public int size;
+
+  private ObjectMapper objectMapper;
+
+  private PageResponseDto<BookDto> bookPage;
+
+  private UserDto user;
+
+  private byte[] bookPageJson;
+
+  private byte[] userJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    List<BookDto> books = new ArrayList<>();
+    List<LoanDto> loans = new ArrayList<>();
+    Instant borrowedAt = Instant.parse("2025-01-01T10:00:00Z");
+    for (int i = 0; i < size; i++) {
+      boolean borrowed = i % 2 == 1;
+      books.add(book(i, new LoanStatusDto(!borrowed, borrowed ? 7L : null, borrowed ? borrowedAt : null)));
+      if (i < 10) {
+        loans.add(new LoanDto((long) i, book(i, null), borrowedAt, null));
+      }
+    }
+    bookPage = new PageResponseDto<>(books, 0, size, 10_000 / size, 10_000, true, false, size, false,
+        "MTowOnRpdGxlOkFTQzpUaGUgUHJhZ21hdGlj");
+    user = new UserDto("demo_user_1", "Demo", "User", "demo_user_1@example.org", loans);
+
+    bookPageJson = objectMapper.writeValueAsBytes(bookPage);
+    userJson = objectMapper.writeValueAsBytes(user);
+  }
+
+  @Benchmark
+  public byte[] serializeBookPage() throws IOException {
+    return objectMapper.writeValueAsBytes(bookPage);
+  }
+
+  @Benchmark
+  public PageResponseDto<BookDto> deserializeBookPage() throws IOException {
+    return objectMapper.readValue(bookPageJson, BOOK_PAGE);
+  }
+
+  @Benchmark
+  public byte[] serializeUserWithLoans() throws IOException {
+    return objectMapper.writeValueAsBytes(user);
+  }
+
+  @Benchmark
+  public UserDto deserializeUserWithLoans() throws IOException {
+    return objectMapper.readValue(userJson, UserDto.class);
+  }
+
+  private static BookDto book(int i, LoanStatusDto loanStatus) {
+    return new BookDto(
+        String.format("978%010d", i),
+        "The Pragmatic Programmer, Volume " + i,
+        "Andrew Hunt, David Thomas",
+        1999 + i % 25,
+        "Addison-Wesley Professional",
+        "en",
+        320 + i % 200,
+        "From journeyman to master. Straight from the programming trenches, this book cuts through the increasing "
+            + "specialization and technicalities of modern software development.",
+        loanStatus);
+  }
+}
@@ -0,0 +1,79 @@
+package org.kergru.library.books.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.kergru.library.books.repository.BookWithLoanProjection;
+import org.kergru.library.model.BookDto;
+import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.paging.PageResponses;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Mapping of book rows to dtos and the construction of a search result page as done by
+ * {@link BookService#searchBooks}, from rows read with one extra row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookMappingBenchmark {
+
+  @Param({"10", "100"})
+  public int size;
+
+  private BookWithLoanProjection row;
+
+  private List<BookWithLoanProjection> rows;
+
+  @Setup
+  public void setUp() {
+    rows = new ArrayList<>();
+    for (int i = 0; i <= size; i++) {
+      rows.add(book(i));
+    }
+    row = rows.getFirst();
+  }
+
+  @Benchmark
+  public BookDto toDto() {
+    return BookService.toDto(row);
+  }
+
+  @Benchmark
+  public PageResponseDto<BookDto> searchPage() {
+    return PageResponses.of(rows, 0, size, 10_000, BookService::toDto,
+        last -> BookService.nextCursor(last, 0, "title", Direction.ASC));
+  }
+
+  /**
+   * Book with realistic field lengths, every other one borrowed.
+   */
+  static BookWithLoanProjection book(int i) {
+    BookWithLoanProjection book = new BookWithLoanProjection();
+    book.setId((long) i + 1);
+    book.setIsbn(String.format("978%010d", i));
+    book.setTitle("The Pragmatic Programmer, Volume " + i);
+    book.setAuthor("Andrew Hunt, David Thomas");
+    book.setPublishedAt(1999 + i % 25);
+    book.setPublisher("Addison-Wesley Professional");
+    book.setLanguage("en");
+    book.setPages(320 + i % 200);
+    book.setDescription("From journeyman to master. Straight from the programming trenches, this book cuts through "
+        + "the increasing specialization and technicalities of modern software development.");
+    if (i % 2 == 1) {
+      book.setLoanId((long) i);
+      book.setBorrowerId((long) i % 50);
+      book.setBorrowedAt(Instant.parse("2025-01-01T10:00:00Z").plusSeconds(i * 3600L));
+    }
+    return book;
+  }
+}
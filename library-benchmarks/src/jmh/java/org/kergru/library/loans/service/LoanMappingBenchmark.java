@@ -0,0 +1,46 @@
+package org.kergru.library.loans.service;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.kergru.library.loans.repository.LoanWithBookProjection;
+import org.kergru.library.model.LoanDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Mapping of a loan row joined with its book to a dto, as done for the loans of a user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoanMappingBenchmark {
+
+  private LoanWithBookProjection row;
+
+  @Setup
+  public void setUp() {
+    row = new LoanWithBookProjection();
+    row.setId(42L);
+    row.setUserId(7L);
+    row.setBookId(1001L);
+    row.setBorrowedAt(Instant.parse("2025-01-01T10:00:00Z"));
+    row.setIsbn("9780135957059");
+    row.setTitle("The Pragmatic Programmer");
+    row.setAuthor("Andrew Hunt, David Thomas");
+    row.setPublishedAt(2019);
+    row.setPublisher("Addison-Wesley Professional");
+    row.setLanguage("en");
+    row.setPages(352);
+    row.setDescription("From journeyman to master.");
+  }
+
+  @Benchmark
+  public LoanDto toDto() {
+    return LoanService.toDto(row);
+  }
+}
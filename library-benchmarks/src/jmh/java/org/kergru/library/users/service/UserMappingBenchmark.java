@@ -0,0 +1,53 @@
+package org.kergru.library.users.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.UserDto;
+import org.kergru.library.paging.PageResponses;
+import org.kergru.library.users.repository.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Construction of a user search result page as done by {@link UserService#searchUsers}, from rows read with one extra
+ * row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserMappingBenchmark {
+
+  @Param({"10", "100"})
+  public int size;
+
+  private List<UserEntity> rows;
+
+  @Setup
+  public void setUp() {
+    rows = new ArrayList<>();
+    for (int i = 0; i <= size; i++) {
+      UserEntity user = new UserEntity();
+      user.id = (long) i + 1;
+      user.username = "demo_user_" + i;
+      user.firstname = "Firstname" + i;
+      user.lastname = "Lastname" + i;
+      user.email = "demo_user_" + i + "@example.org";
+      rows.add(user);
+    }
+  }
+
+  @Benchmark
+  public PageResponseDto<UserDto> searchPage() {
+    return PageResponses.of(rows, 0, size, 10_000, UserService::toDto,
+        last -> UserService.nextCursor(last, 0, "firstName", Direction.ASC));
+  }
+}
@@ -0,0 +1,16 @@
+package org.kergru.library.model;
+
+/**
+ * Result of looking up one book of a batch.
+ *
+ * @param isbn   requested isbn
+ * @param status HTTP status of the item: 200 found, 404 book not found
+ * @param book   the book with loan status if found
+ */
+public record BookLookupResultDto(
+    String isbn,
+    int status,
+    BookDto book
+) {
+
+}
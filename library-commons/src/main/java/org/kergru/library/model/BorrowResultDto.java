@@ -0,0 +1,18 @@
+package org.kergru.library.model;
+
+/**
+ * Result of borrowing one book of a batch.
+ *
+ * @param isbn    requested isbn
+ * @param status  HTTP status of the item: 200 borrowed, 404 book not found, 409 already borrowed
+ * @param message reason if the book was not borrowed
+ * @param loan    the new loan if the book was borrowed
+ */
+public record BorrowResultDto(
+    String isbn,
+    int status,
+    String message,
+    LoanDto loan
+) {
+
+}
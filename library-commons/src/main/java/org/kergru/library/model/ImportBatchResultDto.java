@@ -0,0 +1,26 @@
+package org.kergru.library.model;
+
+import java.util.List;
+
+/**
+ * Result of one batch of a bulk import.
+ *
+ * @param batch          number of the batch, starting with 1
+ * @param received       number of rows received in the batch
+ * @param imported       number of valid rows inserted or updated
+ * @param rejected       number of invalid rows
+ * @param errors         reasons of the rejected rows
+ * @param durationMillis time to validate and write the batch
+ * @param rowsPerSecond  throughput of the batch
+ */
+public record ImportBatchResultDto(
+    int batch,
+    int received,
+    int imported,
+    int rejected,
+    List<String> errors,
+    long durationMillis,
+    double rowsPerSecond
+) {
+
+}
@@ -4,6 +4,11 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
+/**
+ * Page of a search result. Besides the page number based navigation, {@code nextCursor} is an opaque continuation
+ * token that requests the following page by seeking past the last element, it is null on the last page.
+ * {@code totalPages} and {@code totalElements} are -1 if the search was not counted.
+ */
 public record PageResponseDto<T>(
     List<T> content,
     int number,
@@ -13,7 +18,8 @@ public record PageResponseDto<T>(
     boolean first,
     boolean last,
     int numberOfElements,
-    boolean empty
+    boolean empty,
+    String nextCursor
 ) {
   @JsonCreator
   public PageResponseDto(
@@ -25,7 +31,8 @@ public record PageResponseDto<T>(
       @JsonProperty("first") boolean first,
       @JsonProperty("last") boolean last,
       @JsonProperty("numberOfElements") int numberOfElements,
-      @JsonProperty("empty") boolean empty
+      @JsonProperty("empty") boolean empty,
+      @JsonProperty("nextCursor") String nextCursor
   ) {
     this.content = content;
     this.number = number;
@@ -36,5 +43,20 @@ public record PageResponseDto<T>(
     this.last = last;
     this.numberOfElements = numberOfElements;
     this.empty = empty;
+    this.nextCursor = nextCursor;
+  }
+
+  public PageResponseDto(
+      List<T> content,
+      int number,
+      int size,
+      int totalPages,
+      long totalElements,
+      boolean first,
+      boolean last,
+      int numberOfElements,
+      boolean empty
+  ) {
+    this(content, number, size, totalPages, totalElements, first, last, numberOfElements, empty, null);
   }
 }
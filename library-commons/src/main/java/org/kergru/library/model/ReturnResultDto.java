@@ -0,0 +1,18 @@
+package org.kergru.library.model;
+
+/**
+ * Result of returning one loan of a batch.
+ *
+ * @param loanId  requested loan id
+ * @param status  HTTP status of the item: 200 returned, 404 loan not found, 409 already returned
+ * @param message reason if the loan was not returned
+ * @param isbn    isbn of the book of the loan, null if there is no such loan of the user
+ */
+public record ReturnResultDto(
+    Long loanId,
+    int status,
+    String message,
+    String isbn
+) {
+
+}
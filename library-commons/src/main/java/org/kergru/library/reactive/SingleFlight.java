@@ -0,0 +1,74 @@
+package org.kergru.library.reactive;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent identical reads: while a read for a key is in flight, further reads for the same key subscribe
+ * to it instead of starting their own, and all of them get its result. The key is forgotten as soon as the read
+ * terminates, so nothing is cached beyond the duration of one read.
+ *
+ * <p>The read runs with the context of the subscriber that started it. It is only cancelled if all subscribers cancel.
+ *
+ * @param <K> key identifying identical reads
+ * @param <V> result of a read
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder executed = new LongAdder();
+
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Returns the read in flight for the key, or starts the read supplied by the loader if there is none.
+   */
+  public Mono<V> execute(K key, Supplier<? extends Mono<V>> loader) {
+    return Mono.defer(() -> {
+      Flight flight = new Flight(key, loader);
+      Flight existing = inFlight.putIfAbsent(key, flight);
+      if (existing != null) {
+        coalesced.increment();
+        return existing.result;
+      }
+      executed.increment();
+      return flight.result;
+    });
+  }
+
+  /**
+   * Number of reads started.
+   */
+  public long executed() {
+    return executed.sum();
+  }
+
+  /**
+   * Number of reads that joined a read in flight instead of starting their own.
+   */
+  public long coalesced() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Number of reads currently in flight.
+   */
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  private final class Flight {
+
+    private final Mono<V> result;
+
+    private Flight(K key, Supplier<? extends Mono<V>> loader) {
+      this.result = Mono.defer(loader)
+          .doFinally(signal -> inFlight.remove(key, this))
+          .share();
+    }
+  }
+}
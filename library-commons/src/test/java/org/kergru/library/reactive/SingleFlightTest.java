@@ -0,0 +1,74 @@
+package org.kergru.library.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class SingleFlightTest {
+
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void expectConcurrentReadsOfSameKeyShareOneRead() {
+    Sinks.One<String> read = Sinks.one();
+
+    var first = singleFlight.execute("12345", () -> load(read.asMono())).toFuture();
+    var second = singleFlight.execute("12345", () -> load(Mono.just("other"))).toFuture();
+    var otherKey = singleFlight.execute("67890", () -> load(Mono.just("67890"))).toFuture();
+    assertThat(singleFlight.inFlight()).isEqualTo(1);
+
+    read.tryEmitValue("12345");
+
+    assertThat(first).isCompletedWithValue("12345");
+    assertThat(second).isCompletedWithValue("12345");
+    assertThat(otherKey).isCompletedWithValue("67890");
+    assertThat(loads).hasValue(2);
+    assertThat(singleFlight.executed()).isEqualTo(2);
+    assertThat(singleFlight.coalesced()).isEqualTo(1);
+    assertThat(singleFlight.inFlight()).isZero();
+  }
+
+  @Test
+  public void expectReadIsCancelledOnlyWhenAllSubscribersCancel() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Mono<String> read = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+    Disposable first = singleFlight.execute("12345", () -> load(read)).subscribe();
+    Disposable second = singleFlight.execute("12345", () -> load(read)).subscribe();
+
+    first.dispose();
+    assertThat(cancelled).isFalse();
+    assertThat(singleFlight.inFlight()).isEqualTo(1);
+
+    second.dispose();
+    assertThat(cancelled).isTrue();
+    assertThat(singleFlight.inFlight()).isZero();
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  public void expectFailedReadIsForgotten() {
+    StepVerifier.create(singleFlight.execute("12345", () -> load(Mono.error(new IllegalStateException("down")))))
+        .expectError(IllegalStateException.class)
+        .verify();
+    assertThat(singleFlight.inFlight()).isZero();
+
+    StepVerifier.create(singleFlight.execute("12345", () -> load(Mono.just("12345"))))
+        .expectNext("12345")
+        .verifyComplete();
+    assertThat(loads).hasValue(2);
+  }
+
+  private Mono<String> load(Mono<String> read) {
+    loads.incrementAndGet();
+    return read;
+  }
+}
@@ -0,0 +1,15 @@
+package org.kergru.library.client;
+
+/**
+ * Response of a conditional GET to the backend.
+ *
+ * @param body        the body, null if not modified or not found
+ * @param etag        entity tag of the body, null if the backend sent none
+ * @param notModified whether the backend answered 304 Not Modified to the If-None-Match of the request
+ */
+public record ConditionalResponse<T>(T body, String etag, boolean notModified) {
+
+  static <T> ConditionalResponse<T> notModified(String etag) {
+    return new ConditionalResponse<>(null, etag, true);
+  }
+}
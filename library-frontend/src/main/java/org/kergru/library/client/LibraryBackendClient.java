@@ -1,10 +1,15 @@
 package org.kergru.library.client;
 
+import java.util.List;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
+import org.kergru.library.model.BorrowResultDto;
 import org.kergru.library.model.LoanDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.ReturnResultDto;
 import org.kergru.library.model.UserDto;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -28,56 +33,90 @@ public class LibraryBackendClient {
   }
 
   /**
-   * Searches books from the backend using pagination.
+   * Searches books from the backend using pagination, by page number or by the nextCursor of a previous page.
+   * The sort direction and count mode are only sent if given, otherwise the backend defaults apply.
+   * With the etag of a previous response, the backend answers not modified if the result is unchanged.
    */
-  public Mono<PageResponseDto<BookDto>> searchBooks(String searchString, int page, int size, String sortBy) {
+  public Mono<ConditionalResponse<PageResponseDto<BookDto>>> searchBooks(String searchString, int page, int size,
+      String sortBy, String direction, String cursor, String countMode, String etag) {
     return webClient.get()
         .uri(uriBuilder -> {
           var builder = uriBuilder
               .path("/library/books")
               .queryParam("page", page)
               .queryParam("size", size)
-              .queryParam("sort", sortBy);
+              .queryParam("sortBy", sortBy);
           if (searchString != null && !searchString.isEmpty()) {
             builder.queryParam("searchString", searchString);
           }
+          if (direction != null && !direction.isEmpty()) {
+            builder.queryParam("direction", direction);
+          }
+          if (cursor != null && !cursor.isEmpty()) {
+            builder.queryParam("cursor", cursor);
+          }
+          if (countMode != null && !countMode.isEmpty()) {
+            builder.queryParam("countMode", countMode);
+          }
           return builder.build();
         })
-        .retrieve()
-        .onStatus(
-            status -> status.is4xxClientError() || status.is5xxServerError(),
-            ClientResponse::createException
-        )
-        .bodyToMono(new ParameterizedTypeReference<>() {});
+        .headers(headers -> ifNoneMatch(headers, etag))
+        .exchangeToMono(response -> conditional(response, etag,
+            new ParameterizedTypeReference<PageResponseDto<BookDto>>() {}));
   }
 
   /**
-   * Retrieves a single book by its ISBN from the backend.
+   * Retrieves a single book by its ISBN from the backend, empty if there is no such book.
+   * With the etag of a previous response, the backend answers not modified if the book is unchanged.
    */
-  public Mono<BookDto> getBookByIsbn(String isbn) {
+  public Mono<ConditionalResponse<BookDto>> getBookByIsbn(String isbn, String etag) {
     return webClient.get()
         .uri("/library/books/{isbn}", isbn)
+        .headers(headers -> ifNoneMatch(headers, etag))
+        .exchangeToMono(response -> response.statusCode().value() == 404
+            ? response.releaseBody().then(Mono.empty())
+            : conditional(response, etag, new ParameterizedTypeReference<BookDto>() {}));
+  }
+
+  /**
+   * Retrieves several books by ISBN with one request, the result holds one element per ISBN in request order with
+   * status 404 for unknown ISBNs.
+   */
+  public Flux<BookLookupResultDto> lookupBooks(List<String> isbns) {
+    return webClient.post()
+        .uri("/library/books:lookup")
+        .bodyValue(isbns)
         .retrieve()
-        .onStatus(s -> s.value() == 404, resp -> reactor.core.publisher.Mono.empty())
         .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
             ClientResponse::createException)
-        .bodyToMono(BookDto.class);
+        .bodyToFlux(BookLookupResultDto.class);
   }
 
   /**
-   * Searches users from the backend using pagination.
+   * Searches users from the backend using pagination, by page number or by the nextCursor of a previous page.
+   * The sort direction and count mode are only sent if given, otherwise the backend defaults apply.
    */
-  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy) {
+  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy,
+      String direction, String cursor, String countMode) {
     return webClient.get()
         .uri(uriBuilder -> {
           var builder = uriBuilder
               .path("/library/users")
               .queryParam("page", page)
               .queryParam("size", size)
-              .queryParam("sort", sortBy);
+              .queryParam("sortBy", sortBy);
           if (searchString != null && !searchString.isEmpty()) {
             builder.queryParam("searchString", searchString);
           }
+          if (direction != null && !direction.isEmpty()) {
+            builder.queryParam("direction", direction);
+          }
+          if (cursor != null && !cursor.isEmpty()) {
+            builder.queryParam("cursor", cursor);
+          }
+          if (countMode != null && !countMode.isEmpty()) {
+            builder.queryParam("countMode", countMode);
+          }
           return builder.build();
         })
         .retrieve()
@@ -101,6 +140,32 @@ public class LibraryBackendClient {
         .bodyToMono(UserDto.class);
   }
 
+  /**
+   * Retrieves a single user with his book loans from the backend, with one request.
+   */
+  public Mono<UserDto> getUserWithLoans(String userName) {
+    return webClient.get()
+        .uri("/library/users/{userName}?include=loans", userName)
+        .retrieve()
+        .onStatus(s -> s.value() == 404, resp -> reactor.core.publisher.Mono.empty())
+        .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
+            ClientResponse::createException)
+        .bodyToMono(UserDto.class);
+  }
+
+  /**
+   * Retrieves several users with their book loans with one request. Unknown users are missing in the result.
+   */
+  public Flux<UserDto> getUsersWithLoans(List<String> userNames) {
+    return webClient.post()
+        .uri("/library/users/batch")
+        .bodyValue(userNames)
+        .retrieve()
+        .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
+            ClientResponse::createException)
+        .bodyToFlux(UserDto.class);
+  }
+
   /**
    * Retrieves book loans of a user from the backend.
    */
@@ -125,15 +190,61 @@ public class LibraryBackendClient {
         .bodyToMono(LoanDto.class);
   }
 
-  public Mono<Void> returnBook(Long loanId, String userName) {
+  public Mono<ReturnResultDto> returnBook(Long loanId, String userName) {
     return webClient
         .delete()
         .uri("/library/users/{userName}/loans/{loanId}", userName, loanId)
         .retrieve()
-        .onStatus(s -> s.value() == 404, resp -> reactor.core.publisher.Mono.empty())
+        // 409: already returned, e.g. by a repeated request
+        .onStatus(s -> s.value() == 404 || s.value() == 409, resp -> reactor.core.publisher.Mono.empty())
+        .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
+            ClientResponse::createException)
+        .bodyToMono(ReturnResultDto.class);
+  }
+
+  /**
+   * Borrows several books to a user with one request, the result holds the outcome per isbn in request order.
+   */
+  public Flux<BorrowResultDto> borrowBooks(List<String> isbns, String userName) {
+    return webClient.post()
+        .uri("/library/users/{userName}/loans:batch", userName)
+        .bodyValue(isbns)
+        .retrieve()
         .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
             ClientResponse::createException)
-        .bodyToMono(Void.class);
+        .bodyToFlux(BorrowResultDto.class);
+  }
+
+  /**
+   * Returns several loans of a user with one request, the result holds the outcome per loan id in request order.
+   */
+  public Flux<ReturnResultDto> returnBooks(List<Long> loanIds, String userName) {
+    return webClient.post()
+        .uri("/library/users/{userName}/loans:return", userName)
+        .bodyValue(loanIds)
+        .retrieve()
+        .onStatus(s -> s.is4xxClientError() || s.is5xxServerError(),
+            ClientResponse::createException)
+        .bodyToFlux(ReturnResultDto.class);
+  }
+
+  private static void ifNoneMatch(HttpHeaders headers, String etag) {
+    if (etag != null) {
+      headers.setIfNoneMatch(etag);
+    }
+  }
+
+  private static <T> Mono<ConditionalResponse<T>> conditional(ClientResponse response, String etag,
+      ParameterizedTypeReference<T> bodyType) {
+    if (response.statusCode().value() == 304) {
+      return response.releaseBody().thenReturn(ConditionalResponse.notModified(etag));
+    }
+    if (response.statusCode().isError()) {
+      return response.createException().flatMap(e -> Mono.<ConditionalResponse<T>>error(e));
+    }
+    String responseEtag = response.headers().asHttpHeaders().getETag();
+    return response.bodyToMono(bodyType)
+        .map(body -> new ConditionalResponse<>(body, responseEtag, false));
   }
 
   public static class BookAlreadyBorrowedException extends RuntimeException {
@@ -1,18 +1,24 @@
 package org.kergru.library.client;
 
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
 import org.kergru.library.client.logging.LoggingExchangeFilterFunction;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
- * WebClient configuration with OAuth2 token relay and logging interceptors.
+ * WebClient configuration with OAuth2 token relay and logging interceptors, on a tuned Reactor Netty client.
  */
 @Configuration
 public class OAuth2WebClientConfig {
@@ -23,15 +29,58 @@ public class OAuth2WebClientConfig {
   @Bean
   WebClient oauth2WebClient(
       LoggingExchangeFilterFunction loggingInterceptor,
-      @Value("${library.backend.baseUrl}") String backendBaseUrl) {
+      ConnectionProvider backendConnectionProvider,
+      @Value("${library.backend.baseUrl}") String backendBaseUrl,
+      @Value("${library.backend.client.connect-timeout:2s}") Duration connectTimeout,
+      @Value("${library.backend.client.response-timeout:5s}") Duration responseTimeout,
+      @Value("${library.backend.client.keep-alive:true}") boolean keepAlive,
+      @Value("${library.backend.client.h2c:false}") boolean h2c,
+      @Value("${library.backend.client.compression:true}") boolean compression) {
+
+    HttpClient httpClient = HttpClient.create(backendConnectionProvider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+        .responseTimeout(responseTimeout)
+        .keepAlive(keepAlive)
+        .compress(compression) // sends Accept-Encoding: gzip and decompresses responses
+        // h2c multiplexes the requests over few connections, HTTP/1.1 remains as fallback for the upgrade
+        .protocol(h2c
+            ? new HttpProtocol[] {HttpProtocol.H2C, HttpProtocol.HTTP11}
+            : new HttpProtocol[] {HttpProtocol.HTTP11})
+        .metrics(true, uri -> "/library"); // fixed uri tag, path variables would create a meter per user and isbn
 
     return WebClient.builder()
         .baseUrl(backendBaseUrl)
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
         .filter(tokenRelayFilter()) // interceptor for adding access token
         .filter(loggingInterceptor) // interceptor for logging
         .build();
   }
 
+  /**
+   * Connection pool to the backend. Idle and old connections are evicted in the background, before the backend or a
+   * proxy closes them, and callers wait only a bounded time for a connection. The pool reports its metrics as
+   * reactor.netty.connection.provider.* with name library-backend.
+   */
+  @Bean(destroyMethod = "dispose")
+  ConnectionProvider backendConnectionProvider(
+      @Value("${library.backend.client.pool.max-connections:100}") int maxConnections,
+      @Value("${library.backend.client.pool.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+      @Value("${library.backend.client.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+      @Value("${library.backend.client.pool.max-idle-time:30s}") Duration maxIdleTime,
+      @Value("${library.backend.client.pool.max-life-time:5m}") Duration maxLifeTime,
+      @Value("${library.backend.client.pool.evict-in-background:30s}") Duration evictInBackground) {
+
+    return ConnectionProvider.builder("library-backend")
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .maxLifeTime(maxLifeTime)
+        .evictInBackground(evictInBackground)
+        .metrics(true)
+        .build();
+  }
+
   /**
    * Filter that gets the access token from the security context and adds it to the request headers.
    */
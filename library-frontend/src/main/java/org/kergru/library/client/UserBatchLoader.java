@@ -0,0 +1,164 @@
+package org.kergru.library.client;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.kergru.library.model.UserDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Loads users with loans with batch requests to the backend, which returns users and loans together.
+ *
+ * <p>A lookup is sent at once if no request is in flight, so a single lookup does not wait. Lookups issued while a
+ * request is in flight are collected and sent together as soon as it completes, or earlier when the maximum batch
+ * size is reached. Batches therefore grow with the load instead of with a fixed window. The number of users per
+ * request is recorded as {@code library.backend.batch.size}.
+ *
+ * <p>Requests to the backend carry the token of the caller (token relay), and the backend only returns other users
+ * to the librarian. So lookups are only batched with lookups made with the same token.
+ */
+@Component
+public class UserBatchLoader {
+
+  private final LibraryBackendClient backendClient;
+
+  private final int maxBatchSize;
+
+  private final DistributionSummary batchSize;
+
+  /**
+   * Lookups in flight or waiting, by token. A lane is removed once nothing is in flight.
+   */
+  private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+  public UserBatchLoader(
+      LibraryBackendClient backendClient,
+      MeterRegistry meterRegistry,
+      @Value("${library.backend.batch.max-size:100}") int maxBatchSize) {
+    this.backendClient = backendClient;
+    this.maxBatchSize = maxBatchSize;
+    this.batchSize = DistributionSummary.builder("library.backend.batch.size")
+        .description("Users per batch request to the backend")
+        .register(meterRegistry);
+  }
+
+  /**
+   * User with loans, empty if there is no such user.
+   */
+  public Mono<UserDto> load(String userName) {
+    return ReactiveSecurityContextHolder.getContext()
+        .map(SecurityContext::getAuthentication)
+        .filter(JwtAuthenticationToken.class::isInstance)
+        .cast(JwtAuthenticationToken.class)
+        .flatMap(authentication -> enqueue(authentication, userName))
+        .switchIfEmpty(Mono.defer(() -> backendClient.getUsersWithLoans(List.of(userName)).next()));
+  }
+
+  private Mono<UserDto> enqueue(JwtAuthenticationToken authentication, String userName) {
+    String token = authentication.getToken().getTokenValue();
+    while (true) {
+      Lane lane = lanes.computeIfAbsent(token, key -> new Lane(key, authentication));
+      Mono<UserDto> result = lane.add(userName);
+      if (result != null) {
+        return result;
+      }
+      lanes.remove(token, lane); // closed before it was used
+    }
+  }
+
+  private final class Lane {
+
+    private final String token;
+
+    private final JwtAuthenticationToken authentication;
+
+    private Map<String, Sinks.One<UserDto>> waiting = new LinkedHashMap<>();
+
+    private int inFlight;
+
+    private boolean closed;
+
+    private Lane(String token, JwtAuthenticationToken authentication) {
+      this.token = token;
+      this.authentication = authentication;
+    }
+
+    /**
+     * Adds a lookup and sends the waiting lookups if nothing is in flight or the batch is full, null if the lane is
+     * already closed.
+     */
+    private Mono<UserDto> add(String userName) {
+      Mono<UserDto> result;
+      Map<String, Sinks.One<UserDto>> batch = null;
+      synchronized (this) {
+        if (closed) {
+          return null;
+        }
+        result = waiting.computeIfAbsent(userName, key -> Sinks.one()).asMono();
+        if (inFlight == 0 || waiting.size() >= maxBatchSize) {
+          batch = take();
+        }
+      }
+      if (batch != null) {
+        send(batch);
+      }
+      return result;
+    }
+
+    /**
+     * Sends the lookups collected while a request was in flight, or closes the lane if there are none.
+     */
+    private void completed() {
+      Map<String, Sinks.One<UserDto>> batch = null;
+      boolean idle = false;
+      synchronized (this) {
+        inFlight--;
+        if (!waiting.isEmpty()) {
+          batch = take();
+        } else if (inFlight == 0) {
+          closed = idle = true;
+        }
+      }
+      if (batch != null) {
+        send(batch);
+      } else if (idle) {
+        lanes.remove(token, this);
+      }
+    }
+
+    private Map<String, Sinks.One<UserDto>> take() {
+      Map<String, Sinks.One<UserDto>> batch = waiting;
+      waiting = new LinkedHashMap<>();
+      inFlight++;
+      return batch;
+    }
+
+    private void send(Map<String, Sinks.One<UserDto>> batch) {
+      batchSize.record(batch.size());
+      backendClient.getUsersWithLoans(List.copyOf(batch.keySet()))
+          .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+          .collectMap(UserDto::userName)
+          .doFinally(signal -> completed())
+          .subscribe(
+              users -> batch.forEach((userName, sink) -> {
+                UserDto user = users.get(userName);
+                if (user != null) {
+                  sink.tryEmitValue(user);
+                } else {
+                  sink.tryEmitEmpty();
+                }
+              }),
+              error -> batch.values().forEach(sink -> sink.tryEmitError(error)));
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package org.kergru.library.client.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.kergru.library.client.ConditionalResponse;
+import org.kergru.library.reactive.SingleFlight;
+import reactor.core.publisher.Mono;
+
+/**
+ * Short-lived cache of backend responses with stale-while-revalidate.
+ *
+ * <p>Within the TTL a response is served from the cache. Within the stale period after the TTL it is still served,
+ * while one revalidation per key runs in the background. The revalidation sends the etag of the cached response, so an
+ * unchanged response costs the backend a 304 without body. After the stale period the response is loaded again.
+ * Concurrent loads of the same key share one backend call. Empty responses (not found) are cached like others.
+ *
+ * <p>Background revalidations run with the context, and so with the token, of the request that triggered them. The
+ * cache is shared by all users, so it must only be used for responses that are the same for every user.
+ *
+ * @param <K> normalized request parameters
+ * @param <V> response body
+ */
+public class ResponseCache<K, V> {
+
+  private final Cache<K, Entry<V>> entries;
+
+  private final long ttlNanos;
+
+  private final SingleFlight<K, Entry<V>> loads = new SingleFlight<>();
+
+  /**
+   * Incremented by every invalidation, a load started before an invalidation does not store its response.
+   */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public ResponseCache(String name, Duration ttl, Duration stale, long maxSize, MeterRegistry meterRegistry) {
+    this.ttlNanos = ttl.toNanos();
+    this.entries = Caffeine.newBuilder()
+        .expireAfterWrite(ttl.plus(stale))
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, entries, name);
+    FunctionCounter.builder("library.singleflight.executed", loads, SingleFlight::executed)
+        .description("Reads started")
+        .tag("name", name)
+        .register(meterRegistry);
+    FunctionCounter.builder("library.singleflight.coalesced", loads, SingleFlight::coalesced)
+        .description("Reads that joined a read in flight")
+        .tag("name", name)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Cached response for the key, loaded or revalidated by the loader, which gets the etag of the cached response or
+   * null.
+   */
+  public Mono<V> get(K key, Function<String, Mono<ConditionalResponse<V>>> loader) {
+    return Mono.deferContextual(context -> {
+      Entry<V> entry = entries.getIfPresent(key);
+      if (entry == null) {
+        return load(key, null, loader).flatMap(loaded -> Mono.justOrEmpty(loaded.value()));
+      }
+      if (System.nanoTime() - entry.loadedAt() >= ttlNanos) {
+        load(key, entry, loader)
+            .contextWrite(context)
+            .subscribe(revalidated -> { }, error -> { }); // the stale entry stays until it expires
+      }
+      return Mono.justOrEmpty(entry.value());
+    });
+  }
+
+  /**
+   * Removes the response for the key, used if it is known to have changed.
+   */
+  public void invalidate(K key) {
+    invalidations.incrementAndGet();
+    entries.invalidate(key);
+  }
+
+  /**
+   * Removes all responses, used if a change may affect any of them.
+   */
+  public void invalidateAll() {
+    invalidations.incrementAndGet();
+    entries.invalidateAll();
+  }
+
+  private Mono<Entry<V>> load(K key, Entry<V> cached, Function<String, Mono<ConditionalResponse<V>>> loader) {
+    return loads.execute(key, () -> Mono.defer(() -> {
+      long invalidationsAtStart = invalidations.get();
+      return loader.apply(cached != null ? cached.etag() : null)
+          .map(response -> response.notModified() && cached != null
+              ? new Entry<>(cached.value(), cached.etag(), System.nanoTime())
+              : new Entry<>(response.body(), response.etag(), System.nanoTime()))
+          .defaultIfEmpty(new Entry<>(null, null, System.nanoTime()))
+          .doOnNext(loaded -> {
+            if (invalidations.get() == invalidationsAtStart) {
+              entries.put(key, loaded);
+            }
+          });
+    }));
+  }
+
+  /**
+   * @param value    response body, null if empty
+   * @param etag     entity tag of the response, null if unknown
+   * @param loadedAt {@link System#nanoTime()} of the load or last revalidation
+   */
+  private record Entry<V>(V value, String etag, long loadedAt) {
+
+  }
+}
@@ -2,6 +2,7 @@ package org.kergru.library.client.logging;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -10,7 +11,8 @@ import org.springframework.web.reactive.function.client.ExchangeFunction;
 import reactor.core.publisher.Mono;
 
 /**
- * Logging filter for WebClient to log requests and responses.
+ * Logging filter for WebClient to log requests and responses. Requests are logged at debug level as key value pairs,
+ * without the token.
  */
 @Component
 public class LoggingExchangeFilterFunction implements ExchangeFilterFunction {
@@ -20,20 +22,16 @@ public class LoggingExchangeFilterFunction implements ExchangeFilterFunction {
   @Override
   public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
 
-    logRequest(request);
+    if (logger.isDebugEnabled()) {
+      logger.atDebug()
+          .setMessage("Outgoing request")
+          .addKeyValue("method", request.method())
+          .addKeyValue("url", request.url())
+          .addKeyValue("authorization", request.headers().containsKey(HttpHeaders.AUTHORIZATION))
+          .log();
+    }
 
     return next.exchange(request)
         .doOnError(error -> logger.error("Failed to send request to {}", request.url(), error));
   }
-
-  private void logRequest(ClientRequest request) {
-    System.out.println("LibraryBackendClient: Outgoing request to " + request.url());
-
-    String authHeader = request.headers().getFirst("Authorization");
-    if (authHeader != null) {
-      System.out.println("Authorization header present: " + authHeader);
-    } else {
-      System.out.println("No Authorization header present for request to " + request.url());
-    }
-  }
-}
\ No newline at end of file
+}
@@ -1,19 +1,24 @@
 package org.kergru.library.rest;
 
+import java.util.List;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
 import org.kergru.library.model.PageResponseDto;
 import org.kergru.library.service.LibraryService;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
-@RequestMapping("/library/api/books")
+@RequestMapping("/library/api")
 public class BookController {
 
   private final LibraryService libraryService;
@@ -22,17 +27,28 @@ public class BookController {
     this.libraryService = libraryService;
   }
 
-  @GetMapping()
+  @GetMapping("/books")
   public Mono<PageResponseDto<BookDto>> searchBooks(
       @RequestParam(required = false) String searchString,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "title") String sortBy
+      @RequestParam(defaultValue = "title") String sortBy,
+      @RequestParam(required = false) String direction,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String countMode
   ) {
-    return libraryService.searchBooks(searchString, page, size, sortBy);
+    return libraryService.searchBooks(searchString, page, size, sortBy, direction, cursor, countMode);
   }
 
-  @GetMapping("/{isbn}")
+  /**
+   * Looks up several books by ISBN, in request order with status 404 for unknown ISBNs.
+   */
+  @PostMapping("/books:lookup")
+  public Flux<BookLookupResultDto> lookupBooks(@RequestBody List<String> isbns) {
+    return libraryService.lookupBooks(isbns);
+  }
+
+  @GetMapping("/books/{isbn}")
   public Mono<BookDto> getBook(@PathVariable String isbn) {
 
     return libraryService.getBookByIsbn(isbn)
@@ -1,6 +1,9 @@
 package org.kergru.library.rest;
 
+import java.util.List;
+import org.kergru.library.model.BorrowResultDto;
 import org.kergru.library.model.LoanDto;
+import org.kergru.library.model.ReturnResultDto;
 import org.kergru.library.model.UserDto;
 import org.kergru.library.service.LibraryService;
 import org.springframework.http.HttpStatus;
@@ -9,9 +12,11 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -28,7 +33,7 @@ public class MeController {
   public Mono<UserDto> me(@AuthenticationPrincipal Jwt jwt) {
 
     String username = jwt.getClaimAsString("preferred_username");
-    return libraryService.getUserWithLoans(username)
+    return libraryService.getMe(username)
         .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")));
   }
 
@@ -52,4 +57,24 @@ public class MeController {
     String username = jwt.getClaimAsString("preferred_username");
     return libraryService.returnBook(loanId, username);
   }
+
+  /**
+   * Borrows several books to a user, with the outcome per isbn.
+   */
+  @PostMapping("/borrowBooks")
+  public Flux<BorrowResultDto> borrowBooks(@RequestBody List<String> isbns, @AuthenticationPrincipal Jwt jwt) {
+
+    String username = jwt.getClaimAsString("preferred_username");
+    return libraryService.borrowBooks(isbns, username);
+  }
+
+  /**
+   * Returns several books to the library, with the outcome per loan id.
+   */
+  @PostMapping("/returnBooks")
+  public Flux<ReturnResultDto> returnBooks(@RequestBody List<Long> loanIds, @AuthenticationPrincipal Jwt jwt) {
+
+    String username = jwt.getClaimAsString("preferred_username");
+    return libraryService.returnBooks(loanIds, username);
+  }
 }
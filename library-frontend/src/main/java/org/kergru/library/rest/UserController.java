@@ -27,9 +27,12 @@ public class UserController {
       @RequestParam(required = false) String searchString,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "firstName") String sortBy
+      @RequestParam(defaultValue = "firstName") String sortBy,
+      @RequestParam(required = false) String direction,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String countMode
   ) {
-    return libraryService.searchUsers(searchString, page, size, sortBy);
+    return libraryService.searchUsers(searchString, page, size, sortBy, direction, cursor, countMode);
   }
 
   @GetMapping("/{userName}")
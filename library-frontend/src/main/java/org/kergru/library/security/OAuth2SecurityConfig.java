@@ -43,7 +43,8 @@ public class OAuth2SecurityConfig {
         .cors(cors -> cors.configurationSource(corsConfigurationSource())) // CORS is needed for the frontend to call the backend
         .addFilterAfter(jwtLoggingFilter, SecurityWebFiltersOrder.AUTHENTICATION)
         .authorizeExchange(exchanges -> exchanges
-            .pathMatchers("/actuator/**").permitAll()
+            .pathMatchers("/actuator/health/**").permitAll()
+            .pathMatchers("/actuator/**").hasAuthority("ROLE_LIBRARIAN") // metrics expose timings and pool stats
             .pathMatchers("/library/api/users/**").hasAuthority("ROLE_LIBRARIAN")
             .anyExchange().authenticated()
         )
@@ -1,10 +1,15 @@
 package org.kergru.library.security.logging;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -13,45 +18,63 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 /**
- * Logging filter for JWT tokens.
- * It logs the JWT token claims and the authorization header.
+ * Logging filter for incoming requests, logs method, path, authorization scheme and the allowed JWT claims as key
+ * value pairs at debug level. The token itself is never logged.
+ *
+ * <p>If debug is disabled for this logger, or the request is not sampled, the filter only passes the request on. The
+ * log events go to an asynchronous appender (see logback-spring.xml), so logging never blocks the event loop.
  */
 @Component
 public class JwtLoggingFilter implements WebFilter {
 
-  private final ObjectMapper objectMapper;
+  private static final Logger logger = LoggerFactory.getLogger(JwtLoggingFilter.class);
 
-  public JwtLoggingFilter() {
-    this.objectMapper = new ObjectMapper()
-        .enable(SerializationFeature.INDENT_OUTPUT)
-        .registerModule(new JavaTimeModule());
+  private final double sampleRate;
+
+  private final List<String> claims;
+
+  public JwtLoggingFilter(
+      @Value("${library.logging.requests.sample-rate:1.0}") double sampleRate,
+      @Value("${library.logging.requests.claims:sub,preferred_username,azp,exp}") List<String> claims) {
+    this.sampleRate = sampleRate;
+    this.claims = List.copyOf(claims);
   }
 
   @Override
   public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-    System.out.println("Incoming request: " + exchange.getRequest().getURI());
-
-    exchange.getRequest().getHeaders().forEach((name, values) -> {
-      if ("authorization".equalsIgnoreCase(name)) {
-        System.out.println("Authorization header - " + name + ": " + values);
-      }
-    });
+    if (!logger.isDebugEnabled() || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return chain.filter(exchange);
+    }
 
     return ReactiveSecurityContextHolder.getContext()
-        .flatMap(securityContext -> {
-          var authentication = securityContext.getAuthentication();
-          if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
-            try {
-              String jwtJson = objectMapper.writeValueAsString(jwt.getClaims());
-              System.out.println("JWT Token Claims:\n" + jwtJson);
-            } catch (JsonProcessingException e) {
-              System.out.println("Could not parse JWT token: " + e.getMessage());
-            }
-          } else {
-            System.out.println("No JWT token found in security context");
-          }
-          return Mono.empty();
-        })
+        .map(SecurityContext::getAuthentication)
+        .filter(authentication -> authentication.getPrincipal() instanceof Jwt)
+        .map(authentication -> (Jwt) authentication.getPrincipal())
+        .doOnNext(jwt -> log(exchange.getRequest(), jwt))
+        .switchIfEmpty(Mono.fromRunnable(() -> log(exchange.getRequest(), null)))
         .then(chain.filter(exchange));
   }
+
+  private void log(ServerHttpRequest request, Jwt jwt) {
+    String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    LoggingEventBuilder event = logger.atDebug()
+        .setMessage("Incoming request")
+        .addKeyValue("method", request.getMethod())
+        .addKeyValue("path", request.getPath().value())
+        .addKeyValue("authorization", authorization == null ? "none" : scheme(authorization));
+    if (jwt != null) {
+      claims.forEach(claim -> {
+        Object value = jwt.getClaims().get(claim);
+        if (value != null) {
+          event.addKeyValue(claim, value);
+        }
+      });
+    }
+    event.log();
+  }
+
+  private static String scheme(String authorization) {
+    int space = authorization.indexOf(' ');
+    return space > 0 ? authorization.substring(0, space) : "unknown";
+  }
 }
@@ -0,0 +1,30 @@
+package org.kergru.library.service;
+
+import java.util.Locale;
+
+/**
+ * Normalized parameters of a book search, equal for searches with the same result. The search is case-insensitive,
+ * and missing direction and count mode mean the backend defaults.
+ */
+record BookSearchKey(String searchString, int page, int size, String sortBy, String direction, String cursor,
+    String countMode) {
+
+  static BookSearchKey of(String searchString, int page, int size, String sortBy, String direction, String cursor,
+      String countMode) {
+    return new BookSearchKey(
+        normalize(searchString, true),
+        page,
+        size,
+        sortBy,
+        direction != null && !direction.isBlank() ? direction.trim().toUpperCase(Locale.ROOT) : "ASC",
+        normalize(cursor, false),
+        countMode != null && !countMode.isBlank() ? countMode.trim().toUpperCase(Locale.ROOT) : "EXACT");
+  }
+
+  private static String normalize(String value, boolean ignoreCase) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    return ignoreCase ? value.trim().toLowerCase(Locale.ROOT) : value.trim();
+  }
+}
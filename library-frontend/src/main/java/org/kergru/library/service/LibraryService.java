@@ -1,10 +1,22 @@
 package org.kergru.library.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.kergru.library.client.LibraryBackendClient;
+import org.kergru.library.client.UserBatchLoader;
+import org.kergru.library.client.cache.ResponseCache;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
+import org.kergru.library.model.BorrowResultDto;
 import org.kergru.library.model.LoanDto;
 import org.kergru.library.model.PageResponseDto;
+import org.kergru.library.model.ReturnResultDto;
 import org.kergru.library.model.UserDto;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -14,38 +26,141 @@ public class LibraryService {
 
   private final LibraryBackendClient backendClient;
 
-  public LibraryService(LibraryBackendClient oauth2WebClient) {
+  private final UserBatchLoader userBatchLoader;
+
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Time budget of the backend call reading a user with loans, the user is returned without loans if it is exceeded.
+   */
+  private final Duration loansTimeout;
+
+  /**
+   * Time after which the user without loans is requested as well, in case the loans timeout is exceeded.
+   */
+  private final Duration loansHedgeDelay;
+
+  /**
+   * Book search and book detail responses look the same to every authenticated user, so they are cached for all users,
+   * and concurrent loads of the same response share one backend call made with the token of the first caller. Loans
+   * made through this frontend evict the details of the book and all search pages, as any page may show the book.
+   * Loans made elsewhere are visible after the ttl.
+   */
+  private final ResponseCache<BookSearchKey, PageResponseDto<BookDto>> bookSearches;
+
+  private final ResponseCache<String, BookDto> bookDetails;
+
+  public LibraryService(LibraryBackendClient oauth2WebClient, UserBatchLoader userBatchLoader,
+      MeterRegistry meterRegistry, @Value("${library.backend.timeout.loans:1s}") Duration loansTimeout,
+      @Value("${library.backend.timeout.loans-hedge:200ms}") Duration loansHedgeDelay,
+      @Value("${library.backend.cache.search.ttl:5s}") Duration searchTtl,
+      @Value("${library.backend.cache.search.stale:30s}") Duration searchStale,
+      @Value("${library.backend.cache.search.max-size:1000}") long searchMaxSize,
+      @Value("${library.backend.cache.details.ttl:10s}") Duration detailsTtl,
+      @Value("${library.backend.cache.details.stale:60s}") Duration detailsStale,
+      @Value("${library.backend.cache.details.max-size:10000}") long detailsMaxSize) {
     this.backendClient = oauth2WebClient;
+    this.userBatchLoader = userBatchLoader;
+    this.meterRegistry = meterRegistry;
+    this.loansTimeout = loansTimeout;
+    this.loansHedgeDelay = loansHedgeDelay;
+    this.bookSearches = new ResponseCache<>("book-search", searchTtl, searchStale, searchMaxSize, meterRegistry);
+    this.bookDetails = new ResponseCache<>("book-details", detailsTtl, detailsStale, detailsMaxSize, meterRegistry);
   }
 
-  public Mono<PageResponseDto<BookDto>> searchBooks(String searchString, int page, int size, String sortBy) {
-    return backendClient.searchBooks(searchString, page, size, sortBy);
+  /**
+   * Searches books, answered from the response cache for recently requested searches. Searches differing only in
+   * case or in defaulted parameters share a cache entry.
+   */
+  public Mono<PageResponseDto<BookDto>> searchBooks(String searchString, int page, int size, String sortBy,
+      String direction, String cursor, String countMode) {
+    BookSearchKey key = BookSearchKey.of(searchString, page, size, sortBy, direction, cursor, countMode);
+    return bookSearches.get(key, etag -> backendClient.searchBooks(searchString, page, size, sortBy, direction,
+        cursor, countMode, etag));
   }
 
+  /**
+   * Book by isbn, answered from the response cache for recently requested books.
+   */
   public Mono<BookDto> getBookByIsbn(String isbn) {
-    return backendClient.getBookByIsbn(isbn);
+    return bookDetails.get(isbn, etag -> backendClient.getBookByIsbn(isbn, etag));
   }
 
-  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy) {
-    return backendClient.searchUsers(searchString, page, size, sortBy);
+  /**
+   * Looks up several books by ISBN with one backend request, in request order with status 404 for unknown ISBNs.
+   */
+  public Flux<BookLookupResultDto> lookupBooks(List<String> isbns) {
+    return backendClient.lookupBooks(isbns);
   }
 
+  public Mono<PageResponseDto<UserDto>> searchUsers(String searchString, int page, int size, String sortBy,
+      String direction, String cursor, String countMode) {
+    return backendClient.searchUsers(searchString, page, size, sortBy, direction, cursor, countMode);
+  }
+
+  /**
+   * User with borrowed books, loaded together with other lookups made concurrently with the same token in one backend
+   * request. If that takes longer than the loans timeout, the user is returned without loans.
+   */
   public Mono<UserDto> getUserWithLoans(String userName) {
-    return getUser(userName)
-        .flatMap(user ->
-              getBorrowedBooksOfUser(userName)
-                  .collectList()
-                  .map(loans -> new UserDto(
-                      user.userName(),
-                      user.firstName(),
-                      user.lastName(),
-                      user.email(),
-                      loans
-                  )));
+    return withoutLoansOnTimeout("users-batch", userBatchLoader.load(userName), userName);
+  }
+
+  /**
+   * User with borrowed books of the authenticated user, read by the backend with one query.
+   */
+  public Mono<UserDto> getMe(String userName) {
+    return withoutLoansOnTimeout("user-with-loans", backendClient.getUserWithLoans(userName), userName);
   }
 
   public Mono<UserDto> getUser(String userName) {
-    return backendClient.getUser(userName);
+    return timed("user", backendClient.getUser(userName));
+  }
+
+  /**
+   * Degrades a read of a user with loans to the user without loans ({@code loans} null) if it exceeds the loans
+   * timeout. The user alone is served from the user cache of the backend, so the fallback is cheap: it is requested
+   * when the read has not completed within the loans hedge delay, so that it is at hand when the timeout has passed.
+   * From then on, whichever of both results comes first is returned.
+   */
+  private Mono<UserDto> withoutLoansOnTimeout(String leg, Mono<UserDto> userWithLoans, String userName) {
+    return Mono.deferContextual(context -> {
+      CompletableFuture<Optional<UserDto>> withoutLoans = Mono.delay(loansHedgeDelay)
+          .then(getUser(userName))
+          .map(Optional::of)
+          .defaultIfEmpty(Optional.empty())
+          .contextWrite(context)
+          .toFuture();
+      return Flux.merge(
+              timed(leg, userWithLoans)
+                  .map(Optional::of)
+                  .defaultIfEmpty(Optional.empty()),
+              Mono.delay(loansTimeout)
+                  .then(Mono.fromFuture(withoutLoans, true))
+                  .doOnNext(user -> meterRegistry.counter("library.backend.degraded", "leg", leg).increment()))
+          .next()
+          .flatMap(Mono::justOrEmpty)
+          .doFinally(signal -> withoutLoans.cancel(false));
+    });
+  }
+
+  /**
+   * Records the latency of a backend call as histogram, by leg and outcome (success, error or cancel, e.g. on timeout).
+   */
+  private <T> Mono<T> timed(String leg, Mono<T> call) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return call.doFinally(signal -> sample.stop(Timer.builder("library.backend.calls")
+          .description("Latency of backend calls")
+          .tag("leg", leg)
+          .tag("outcome", switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancel";
+            default -> "success";
+          })
+          .publishPercentileHistogram()
+          .register(meterRegistry)));
+    });
   }
 
   public Flux<LoanDto> getBorrowedBooksOfUser(String userId) {
@@ -56,13 +171,50 @@ public class LibraryService {
    * Borrows a book to a user. Endpoint is only available for the user himself.
    */
   public Mono<LoanDto> borrowBook(String isbn, String userName) {
-    return backendClient.borrowBook(isbn, userName);
+    return backendClient.borrowBook(isbn, userName)
+        .doOnSuccess(loan -> loanChanged(isbn));
   }
 
   /**
    * Returns a book to library. Endpoint is only available for the user himself.
    */
   public Mono<Void> returnBook(Long loanId, String userName) {
-    return backendClient.returnBook(loanId, userName);
+    return backendClient.returnBook(loanId, userName)
+        .doOnNext(result -> loanChanged(result.isbn()))
+        .then();
+  }
+
+  /**
+   * Borrows several books to a user with one backend request. Endpoint is only available for the user himself.
+   */
+  public Flux<BorrowResultDto> borrowBooks(List<String> isbns, String userName) {
+    return backendClient.borrowBooks(isbns, userName)
+        .doOnNext(result -> {
+          if (result.status() == 200) {
+            loanChanged(result.isbn());
+          }
+        });
+  }
+
+  /**
+   * Returns several books to library with one backend request. Endpoint is only available for the user himself.
+   */
+  public Flux<ReturnResultDto> returnBooks(List<Long> loanIds, String userName) {
+    return backendClient.returnBooks(loanIds, userName)
+        .doOnNext(result -> {
+          if (result.status() == 200) {
+            loanChanged(result.isbn());
+          }
+        });
+  }
+
+  /**
+   * Evicts the cached responses showing the loan status of the book.
+   */
+  private void loanChanged(String isbn) {
+    if (isbn != null) {
+      bookDetails.invalidate(isbn);
+    }
+    bookSearches.invalidateAll();
   }
-}
\ No newline at end of file
+}
@@ -3,8 +3,11 @@ package org.kergru.library.rest;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.kergru.library.util.JwtTestUtils.createMockJwt;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.kergru.library.model.BookDto;
+import org.kergru.library.model.BookLookupResultDto;
 import org.kergru.library.model.PageResponseDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -59,4 +62,77 @@ public class BookControllerIT {
           assertThat(book.isbn()).isEqualTo("12345");
         });
   }
+
+  @Test
+  void expectLookupBooksShouldReturnBooksInRequestOrder() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .post()
+        .uri("/library/api/books:lookup")
+        .bodyValue(List.of("12345", "unknown-isbn"))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(BookLookupResultDto.class)
+        .value(results -> {
+          assertThat(results).extracting(BookLookupResultDto::isbn).containsExactly("12345", "unknown-isbn");
+          assertThat(results.getFirst().book().title()).isEqualTo("The Great Gatsby");
+          assertThat(results.getLast().status()).isEqualTo(404);
+          assertThat(results.getLast().book()).isNull();
+        });
+  }
+
+  @Test
+  void expectBackendRequestsShouldAcceptCompressedResponses() {
+
+    webTestClient
+        .mutateWith(createMockJwt("demo_user_1"))
+        .post()
+        .uri("/library/api/books:lookup")
+        .bodyValue(List.of("12345"))
+        .exchange()
+        .expectStatus().isOk();
+
+    WireMock.verify(WireMock.postRequestedFor(WireMock.urlEqualTo("/library/books:lookup"))
+        .withHeader("Accept-Encoding", WireMock.containing("gzip")));
+  }
+
+  @Test
+  void expectRepeatedGetBookByIsbnShouldBeAnsweredFromCache() {
+
+    for (int i = 0; i < 3; i++) {
+      webTestClient
+          .mutateWith(createMockJwt("demo_user_1"))
+          .get()
+          .uri("/library/api/books/67890")
+          .exchange()
+          .expectStatus().isOk()
+          .expectBody(BookDto.class)
+          .value(book -> assertThat(book.isbn()).isEqualTo("67890"));
+    }
+
+    WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/library/books/67890")));
+  }
+
+  @Test
+  void expectReturnBookShouldEvictCachedBook() {
+
+    for (int i = 0; i < 2; i++) {
+      webTestClient
+          .mutateWith(createMockJwt("demo_user_1"))
+          .get()
+          .uri("/library/api/books/24680")
+          .exchange()
+          .expectStatus().isOk();
+
+      webTestClient
+          .mutateWith(createMockJwt("demo_user_1"))
+          .post()
+          .uri("/library/api/me/returnBook/2")
+          .exchange()
+          .expectStatus().isOk();
+    }
+
+    WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlEqualTo("/library/books/24680")));
+  }
 }
@@ -3,6 +3,7 @@ package org.kergru.library.rest;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.kergru.library.util.JwtTestUtils.createMockJwt;
 
+import java.time.Duration;
 import org.junit.jupiter.api.Test;
 import org.kergru.library.model.LoanDto;
 import org.kergru.library.model.UserDto;
@@ -38,9 +39,30 @@ public class MeControllerIT {
         .value(user -> {
           assertThat(user).isNotNull();
           assertThat(user.userName()).isEqualTo("demo_user_1");
+          assertThat(user.loans()).hasSize(1);
         });
   }
 
+  @Test
+  void expectGetMeShouldReturnUserWithoutLoansIfLoansAreTooSlow() {
+
+    long start = System.nanoTime();
+    webTestClient
+        .mutateWith(createMockJwt("slow_user"))
+        .get()
+        .uri("/library/api/me")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(UserDto.class)
+        .value(user -> {
+          assertThat(user.userName()).isEqualTo("slow_user");
+          assertThat(user.loans()).isNull();
+        });
+
+    // the user alone takes 600ms, it is requested before the loans timeout of 1s has passed
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+  }
+
   @Test
   void expectBorrowBookReturnsLoan() {
     webTestClient
@@ -4,6 +4,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.kergru.library.util.JwtTestUtils.createMockJwt;
 import static org.kergru.library.util.JwtTestUtils.createMockJwtWithRoleLibrarian;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.kergru.library.model.PageResponseDto;
 import org.kergru.library.model.UserDto;
@@ -79,4 +83,33 @@ public class UserControllerIT {
         .exchange()
         .expectStatus().isForbidden();
   }
+
+  @Test
+  void expectGetUsersWhileBatchIsInFlightShouldBeLoadedWithOneBatch() throws Exception {
+
+    var first = CompletableFuture.runAsync(() -> getUserWithRoleLibrarian("batch_user_1"));
+    Thread.sleep(200); // batch_user_1 is answered after 500ms
+
+    var queued = List.of("batch_user_2", "batch_user_3", "batch_user_4").stream()
+        .map(userName -> CompletableFuture.runAsync(() -> getUserWithRoleLibrarian(userName)))
+        .toList();
+    CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    first.get(5, TimeUnit.SECONDS);
+
+    WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlEqualTo("/library/users/batch"))
+        .withRequestBody(WireMock.containing("batch_user_2"))
+        .withRequestBody(WireMock.containing("batch_user_3"))
+        .withRequestBody(WireMock.containing("batch_user_4")));
+  }
+
+  private void getUserWithRoleLibrarian(String userName) {
+    webTestClient
+        .mutateWith(createMockJwtWithRoleLibrarian("librarian"))
+        .get()
+        .uri("/library/api/users/{userName}", userName)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(UserDto.class)
+        .value(user -> assertThat(user.userName()).isEqualTo(userName));
+  }
 }
@@ -0,0 +1,120 @@
+package org.kergru.library.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds a synthetic catalogue and users to the seed data. Titles and authors are combined from small word lists, so
+ * searches for any of the {@link #SEARCH_TERMS} find a share of the catalogue similar to real searches. The data is
+ * derived from fixed seeds, so runs with the same size are comparable.
+ */
+public final class CatalogueSeeder {
+
+  private static final Logger logger = LoggerFactory.getLogger(CatalogueSeeder.class);
+
+  private static final int BATCH_SIZE = 1000;
+
+  private static final List<String> ADJECTIVES = List.of("Reactive", "Effective", "Modern", "Practical", "Clean",
+      "Distributed", "Concurrent", "Functional", "Secure", "Pragmatic", "Scalable", "Resilient");
+
+  private static final List<String> SUBJECTS = List.of("Java", "Spring", "Architecture", "Databases", "Testing",
+      "Microservices", "Algorithms", "Networking", "Security", "Kotlin", "Design", "Performance");
+
+  private static final List<String> AUTHORS = List.of("Ada Lovelace", "Alan Turing", "Grace Hopper",
+      "Edsger Dijkstra", "Barbara Liskov", "Donald Knuth", "Margaret Hamilton", "Niklaus Wirth", "Leslie Lamport",
+      "Frances Allen");
+
+  private static final List<String> PUBLISHERS = List.of("Addison-Wesley", "Manning", "O'Reilly Media",
+      "Prentice Hall", "Pragmatic Bookshelf");
+
+  /**
+   * Words that occur in titles or authors of the synthetic catalogue.
+   */
+  public static final List<String> SEARCH_TERMS = List.of("Reactive", "Java", "Spring", "Clean", "Design",
+      "Knuth", "Hopper", "Testing", "Security", "Performance");
+
+  private CatalogueSeeder() {
+  }
+
+  /**
+   * ISBN of the i-th synthetic book.
+   */
+  public static String isbn(int i) {
+    return String.format("979%010d", i);
+  }
+
+  /**
+   * User name of the i-th synthetic user, starting with 0.
+   */
+  public static String userName(int i) {
+    return "loadtest_user_" + i;
+  }
+
+  public static void seed(String jdbcUrl, int books, int users) throws Exception {
+    long start = System.nanoTime();
+    try (Connection connection = DriverManager.getConnection(jdbcUrl, EmbeddedDatabase.USERNAME,
+        EmbeddedDatabase.PASSWORD)) {
+      connection.setAutoCommit(false);
+      insertUsers(connection, users);
+      insertBooks(connection, books);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("ANALYZE TABLE users, books, loans");
+      }
+    }
+    logger.info("Seeded {} books and {} users in {} ms", books, users, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private static void insertUsers(Connection connection, int users) throws Exception {
+    try (PreparedStatement insert = connection.prepareStatement(
+        "INSERT INTO users (username, firstname, lastname, email) VALUES (?, ?, ?, ?)")) {
+      for (int i = 0; i < users; i++) {
+        insert.setString(1, userName(i));
+        insert.setString(2, "Load");
+        insert.setString(3, "Tester " + i);
+        insert.setString(4, userName(i) + "@example.test");
+        insert.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+      connection.commit();
+    }
+  }
+
+  private static void insertBooks(Connection connection, int books) throws Exception {
+    Random random = new Random(42);
+    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO books "
+        + "(isbn, title, author, published_at, publisher, language, description, pages) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+      for (int i = 0; i < books; i++) {
+        String title = pick(random, ADJECTIVES) + " " + pick(random, SUBJECTS) + ", Volume " + (i % 97 + 1);
+        insert.setString(1, isbn(i));
+        insert.setString(2, title);
+        insert.setString(3, pick(random, AUTHORS));
+        insert.setInt(4, 1970 + random.nextInt(56));
+        insert.setString(5, pick(random, PUBLISHERS));
+        insert.setString(6, random.nextInt(4) == 0 ? "DE" : "EN");
+        insert.setString(7, "Synthetic description of " + title + ". " + "Lorem ipsum dolor sit amet. ".repeat(8));
+        insert.setInt(8, 100 + random.nextInt(900));
+        insert.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+          insert.executeBatch();
+          connection.commit();
+        }
+      }
+      insert.executeBatch();
+      connection.commit();
+    }
+  }
+
+  private static String pick(Random random, List<String> values) {
+    return values.get(random.nextInt(values.size()));
+  }
+}
@@ -0,0 +1,59 @@
+package org.kergru.library.loadtest;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MariaDB stand-in for the MySQL database of docker-compose, started from the binaries bundled with MariaDB4j on a
+ * free port and loaded with the schema and seed data of {@code docker/mysql-init}.
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(EmbeddedDatabase.class);
+
+  public static final String USERNAME = "admin";
+
+  public static final String PASSWORD = "pwd";
+
+  private final DB db;
+
+  private final int port;
+
+  private EmbeddedDatabase(DB db, int port) {
+    this.db = db;
+    this.port = port;
+  }
+
+  public static EmbeddedDatabase start(Path workDir) throws Exception {
+    DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+    config.setPort(0);
+    config.setBaseDir(workDir.resolve("mariadb/base").toFile());
+    config.setDataDir(workDir.resolve("mariadb/data").toFile());
+    config.setDeletingTemporaryBaseAndDataDirsOnShutdown(true);
+    DB db = DB.newEmbeddedDB(config.build());
+    db.start();
+
+    int port = db.getConfiguration().getPort();
+    db.source("library_schema.sql", "root", null, null);
+    // anonymous users of a fresh installation would take precedence over admin@% for local connections
+    db.run("DROP USER IF EXISTS ''@'localhost'; FLUSH PRIVILEGES;", "root", null);
+    logger.info("Database started on port {}", port);
+    return new EmbeddedDatabase(db, port);
+  }
+
+  public String jdbcUrl() {
+    return "jdbc:mariadb://localhost:" + port + "/library";
+  }
+
+  public String r2dbcUrl() {
+    return "r2dbc:mysql://localhost:" + port + "/library";
+  }
+
+  @Override
+  public void close() throws Exception {
+    db.stop();
+  }
+}
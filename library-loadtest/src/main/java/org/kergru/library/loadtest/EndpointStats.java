@@ -0,0 +1,67 @@
+package org.kergru.library.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies in microseconds and outcomes of the requests to one endpoint, recorded concurrently by the workers.
+ */
+final class EndpointStats {
+
+  private final String name;
+
+  private final Histogram latencies = new ConcurrentHistogram(3);
+
+  private final LongAdder errors = new LongAdder();
+
+  private final LongAdder conflicts = new LongAdder();
+
+  EndpointStats(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records a response, 409 Conflict is counted apart from errors as it is an expected answer to concurrent borrows.
+   */
+  void record(long nanos, int status) {
+    latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    if (status == 409) {
+      conflicts.increment();
+    } else if (status >= 400) {
+      errors.increment();
+    }
+  }
+
+  /**
+   * Records a request without response, e.g. a timeout or a refused connection.
+   */
+  void recordFailure() {
+    errors.increment();
+  }
+
+  String name() {
+    return name;
+  }
+
+  long requests() {
+    return latencies.getTotalCount();
+  }
+
+  long errors() {
+    return errors.sum();
+  }
+
+  long conflicts() {
+    return conflicts.sum();
+  }
+
+  double percentileMillis(double percentile) {
+    return latencies.getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  double maxMillis() {
+    return latencies.getMaxValue() / 1000.0;
+  }
+}
@@ -0,0 +1,104 @@
+package org.kergru.library.loadtest;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-in for the Keycloak realm: serves the OpenID configuration and the JWK set of a generated RSA key, and issues
+ * access tokens with the claims the applications read, without a login.
+ */
+public class JwtIssuerStub implements AutoCloseable {
+
+  private static final String REALM_PATH = "/realms/library";
+
+  private final HttpServer server;
+
+  private final RSAKey key;
+
+  private final String issuer;
+
+  private JwtIssuerStub(HttpServer server, RSAKey key) {
+    this.server = server;
+    this.key = key;
+    this.issuer = "http://localhost:" + server.getAddress().getPort() + REALM_PATH;
+  }
+
+  public static JwtIssuerStub start() throws Exception {
+    RSAKey key = new RSAKeyGenerator(2048).keyID("loadtest").generate();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    JwtIssuerStub stub = new JwtIssuerStub(server, key);
+
+    String configuration = """
+        {"issuer":"%s","jwks_uri":"%s","subject_types_supported":["public"],\
+        "id_token_signing_alg_values_supported":["RS256"],"response_types_supported":["code"]}"""
+        .formatted(stub.issuer(), stub.jwkSetUri());
+    String jwkSet = new JWKSet(key.toPublicJWK()).toString();
+    server.createContext(REALM_PATH + "/.well-known/openid-configuration", exchange -> respond(exchange, configuration));
+    server.createContext(REALM_PATH + "/protocol/openid-connect/certs", exchange -> respond(exchange, jwkSet));
+    server.start();
+    return stub;
+  }
+
+  public String issuer() {
+    return issuer;
+  }
+
+  public String jwkSetUri() {
+    return issuer + "/protocol/openid-connect/certs";
+  }
+
+  /**
+   * Signed access token for the user, shaped like the tokens of the Keycloak realm.
+   */
+  public String token(String userName, List<String> roles, Duration validity) throws Exception {
+    Instant now = Instant.now();
+    JWTClaimsSet claims = new JWTClaimsSet.Builder()
+        .issuer(issuer)
+        .subject(userName)
+        .claim("preferred_username", userName)
+        .claim("azp", "library-loadtest")
+        .claim("scope", "openid profile email")
+        .claim("realm_access", Map.of("roles", roles))
+        .issueTime(Date.from(now))
+        .expirationTime(Date.from(now.plus(validity)))
+        .build();
+    SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+        .keyID(key.getKeyID())
+        .type(JOSEObjectType.JWT)
+        .build(), claims);
+    jwt.sign(new RSASSASigner(key));
+    return jwt.serialize();
+  }
+
+  private static void respond(HttpExchange exchange, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,71 @@
+package org.kergru.library.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Requests of the workload operations against the REST API of the frontend ({@code /library/api}) or directly
+ * against the backend ({@code /library}).
+ *
+ * @param baseUri  base uri of the application
+ * @param frontend whether the application is the frontend
+ */
+public record LibraryApi(URI baseUri, boolean frontend) {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  public static LibraryApi frontend(URI baseUri) {
+    return new LibraryApi(baseUri, true);
+  }
+
+  public static LibraryApi backend(URI baseUri) {
+    return new LibraryApi(baseUri, false);
+  }
+
+  public String name() {
+    return frontend ? "frontend" : "backend";
+  }
+
+  public HttpRequest search(String searchString, String token) {
+    String query = "?searchString=" + URLEncoder.encode(searchString, StandardCharsets.UTF_8) + "&page=0&size=20";
+    return get((frontend ? "/library/api/books" : "/library/books") + query, token);
+  }
+
+  public HttpRequest details(String isbn, String token) {
+    return get((frontend ? "/library/api/books/" : "/library/books/") + isbn, token);
+  }
+
+  public HttpRequest profile(String userName, String token) {
+    return get(frontend ? "/library/api/me" : "/library/users/" + userName + "?include=loans", token);
+  }
+
+  public HttpRequest borrow(String userName, String isbn, String token) {
+    return frontend
+        ? request("/library/api/me/borrowBook/" + isbn, token).POST(BodyPublishers.noBody()).build()
+        : request("/library/users/" + userName + "/loans", token)
+            .header("Content-Type", "text/plain")
+            .POST(BodyPublishers.ofString(isbn))
+            .build();
+  }
+
+  public HttpRequest returnLoan(String userName, long loanId, String token) {
+    return frontend
+        ? request("/library/api/me/returnBook/" + loanId, token).POST(BodyPublishers.noBody()).build()
+        : request("/library/users/" + userName + "/loans/" + loanId, token).DELETE().build();
+  }
+
+  private HttpRequest get(String path, String token) {
+    return request(path, token).GET().build();
+  }
+
+  private HttpRequest.Builder request(String path, String token) {
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .timeout(TIMEOUT)
+        .header("Authorization", "Bearer " + token)
+        .header("Accept", "application/json");
+  }
+}
@@ -0,0 +1,68 @@
+package org.kergru.library.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test of backend and frontend without docker-compose. Starts an embedded database seeded with a synthetic
+ * catalogue and a JWT issuer stub in place of MySQL and Keycloak, boots the backend and the frontend against them in
+ * separate JVMs and runs the {@link Workload} against each target of the settings.
+ */
+public final class LoadTest {
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+    try (EmbeddedDatabase database = EmbeddedDatabase.start(settings.workDir());
+        JwtIssuerStub issuer = JwtIssuerStub.start()) {
+
+      CatalogueSeeder.seed(database.jdbcUrl(), settings.books(), settings.users());
+
+      Duration validity = settings.warmup().plus(settings.duration()).multipliedBy(settings.targets().size())
+          .plus(Duration.ofMinutes(10));
+      List<String> tokens = new ArrayList<>();
+      for (int i = 0; i < settings.users(); i++) {
+        tokens.add(issuer.token(CatalogueSeeder.userName(i), List.of("USER"), validity));
+      }
+
+      try (ServiceProcess backend = ServiceProcess.start("backend", settings.backendClasspath(),
+          "org.kergru.library.LibraryBackendApplication", settings.jvmArgs(), List.of(
+              "--spring.r2dbc.url=" + database.r2dbcUrl(),
+              "--spring.r2dbc.username=" + EmbeddedDatabase.USERNAME,
+              "--spring.r2dbc.password=" + EmbeddedDatabase.PASSWORD,
+              "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuer(),
+              "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + issuer.jwkSetUri()),
+          settings.workDir())) {
+        backend.awaitHealthy(STARTUP_TIMEOUT);
+
+        try (ServiceProcess frontend = settings.targets().contains("frontend")
+            ? ServiceProcess.start("frontend", settings.frontendClasspath(),
+            "org.kergru.library.LibraryFrontendApplication", settings.jvmArgs(), List.of(
+                "--library.backend.baseUrl=" + backend.baseUri(),
+                "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuer(),
+                "--logging.level.org.springframework.security=INFO"),
+            settings.workDir())
+            : null) {
+          if (frontend != null) {
+            frontend.awaitHealthy(STARTUP_TIMEOUT);
+          }
+
+          for (String target : settings.targets()) {
+            LibraryApi api = switch (target) {
+              case "backend" -> LibraryApi.backend(backend.baseUri());
+              case "frontend" -> LibraryApi.frontend(frontend.baseUri());
+              default -> throw new IllegalArgumentException("Unknown target " + target);
+            };
+            new Workload(api, settings, tokens).run(System.out);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.kergru.library.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties. The Gradle task passes the project
+ * properties of the same name.
+ *
+ * @param books              number of synthetic books in the catalogue
+ * @param users              number of synthetic users, each worker acts as one of them
+ * @param concurrency        number of concurrent workers, each sending one request at a time
+ * @param warmup             time the workload runs before latencies are recorded
+ * @param duration           time latencies are recorded
+ * @param targets            applications to load, {@code backend} and/or {@code frontend}, one after the other
+ * @param mix                relative weights of the operations
+ * @param jvmArgs            JVM arguments of the backend and frontend processes
+ * @param backendClasspath   runtime classpath of the backend
+ * @param frontendClasspath  runtime classpath of the frontend
+ * @param workDir            directory for database files and process logs
+ */
+public record LoadTestSettings(
+    int books,
+    int users,
+    int concurrency,
+    Duration warmup,
+    Duration duration,
+    List<String> targets,
+    Map<Operation, Integer> mix,
+    List<String> jvmArgs,
+    String backendClasspath,
+    String frontendClasspath,
+    Path workDir
+) {
+
+  public static LoadTestSettings fromSystemProperties() {
+    return new LoadTestSettings(
+        Integer.getInteger("loadtest.books", 10_000),
+        Integer.getInteger("loadtest.users", 200),
+        Integer.getInteger("loadtest.concurrency", 50),
+        Duration.ofSeconds(Integer.getInteger("loadtest.warmupSeconds", 15)),
+        Duration.ofSeconds(Integer.getInteger("loadtest.durationSeconds", 60)),
+        split(System.getProperty("loadtest.targets", "backend,frontend"), ","),
+        mix(System.getProperty("loadtest.mix", "search:50,details:30,profile:10,borrow:10")),
+        split(System.getProperty("loadtest.jvmArgs", "-Xmx1g"), " "),
+        required("loadtest.backend.classpath"),
+        required("loadtest.frontend.classpath"),
+        Path.of(System.getProperty("loadtest.workDir", "build/loadtest"))
+    );
+  }
+
+  /**
+   * Parses weights like {@code search:50,details:30}, operations without weight are not run.
+   *
+   * @throws IllegalArgumentException if an operation is unknown or a weight is not a number
+   */
+  static Map<Operation, Integer> mix(String value) {
+    Map<Operation, Integer> mix = new LinkedHashMap<>();
+    for (String entry : split(value, ",")) {
+      String[] parts = entry.split(":", 2);
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Invalid mix entry " + entry + ", expected operation:weight");
+      }
+      mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+    }
+    return mix;
+  }
+
+  private static List<String> split(String value, String separator) {
+    return Arrays.stream(value.split(separator)).map(String::trim).filter(s -> !s.isEmpty()).toList();
+  }
+
+  private static String required(String name) {
+    String value = System.getProperty(name);
+    if (value == null || value.isBlank()) {
+      throw new IllegalStateException("System property " + name + " is missing, run the loadTest Gradle task");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,12 @@
+package org.kergru.library.loadtest;
+
+/**
+ * Operations of the workload. A borrow is followed by the return of the borrowed book, so the catalogue stays
+ * available, both requests are reported separately.
+ */
+public enum Operation {
+  SEARCH,
+  DETAILS,
+  PROFILE,
+  BORROW
+}
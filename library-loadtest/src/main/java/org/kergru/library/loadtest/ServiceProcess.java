@@ -0,0 +1,117 @@
+package org.kergru.library.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Spring Boot application under test, started in its own JVM so backend and frontend keep their own classpath and
+ * configuration. The output goes to a log file in the work directory.
+ */
+public class ServiceProcess implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ServiceProcess.class);
+
+  private final String name;
+
+  private final Process process;
+
+  private final int port;
+
+  private final Path logFile;
+
+  private ServiceProcess(String name, Process process, int port, Path logFile) {
+    this.name = name;
+    this.process = process;
+    this.port = port;
+    this.logFile = logFile;
+  }
+
+  /**
+   * Starts the main class on a free port.
+   *
+   * @param args application arguments, e.g. {@code --spring.r2dbc.url=...}
+   */
+  public static ServiceProcess start(String name, String classpath, String mainClass, List<String> jvmArgs,
+      List<String> args, Path workDir) throws IOException {
+
+    int port = freePort();
+    Path logFile = workDir.resolve(name + ".log");
+    Files.createDirectories(workDir);
+
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(jvmArgs);
+    command.add("-cp");
+    command.add(classpath);
+    command.add(mainClass);
+    command.add("--server.port=" + port);
+    command.addAll(args);
+
+    Process process = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(logFile.toFile())
+        .start();
+    // no orphaned applications when the load test is interrupted
+    Runtime.getRuntime().addShutdownHook(new Thread(process::destroy));
+    logger.info("Started {} on port {}, log in {}", name, port, logFile);
+    return new ServiceProcess(name, process, port, logFile);
+  }
+
+  public URI baseUri() {
+    return URI.create("http://localhost:" + port);
+  }
+
+  /**
+   * Waits until the actuator health endpoint reports UP.
+   *
+   * @throws IllegalStateException if the process exits or does not become healthy in time
+   */
+  public void awaitHealthy(Duration timeout) throws InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    HttpRequest request = HttpRequest.newBuilder(baseUri().resolve("/actuator/health"))
+        .timeout(Duration.ofSeconds(2))
+        .build();
+    long deadline = System.nanoTime() + timeout.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + logFile);
+      }
+      try {
+        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          logger.info("{} is healthy", name);
+          return;
+        }
+      } catch (IOException e) {
+        // not listening yet
+      }
+      Thread.sleep(500);
+    }
+    throw new IllegalStateException(name + " not healthy after " + timeout + ", see " + logFile);
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    process.destroy();
+    if (!process.waitFor(30, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
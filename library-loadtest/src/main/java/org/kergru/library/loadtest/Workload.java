@@ -0,0 +1,153 @@
+package org.kergru.library.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Closed workload: each worker is one user sending one request at a time, operations drawn by the weights of the mix.
+ * Latencies are recorded after the warmup only.
+ */
+public class Workload {
+
+  private final LibraryApi api;
+
+  private final LoadTestSettings settings;
+
+  private final List<String> tokens;
+
+  private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+  private final int totalWeight;
+
+  private volatile boolean recording;
+
+  /**
+   * @param tokens access token per synthetic user, by user index
+   */
+  public Workload(LibraryApi api, LoadTestSettings settings, List<String> tokens) {
+    this.api = api;
+    this.settings = settings;
+    this.tokens = tokens;
+    this.totalWeight = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+    for (String endpoint : List.of("search", "details", "profile", "borrow", "return")) {
+      stats.put(endpoint, new EndpointStats(endpoint));
+    }
+  }
+
+  /**
+   * Runs warmup and measurement and prints the statistics per endpoint.
+   */
+  public void run(PrintStream out) throws InterruptedException {
+    long start = System.nanoTime();
+    long measureStart = start + settings.warmup().toNanos();
+    long end = measureStart + settings.duration().toNanos();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < settings.concurrency(); i++) {
+        int worker = i;
+        executor.submit(() -> work(worker, end));
+      }
+      Thread.sleep(Duration.ofNanos(Math.max(0, measureStart - System.nanoTime())));
+      recording = true;
+    }
+    print(out, Duration.ofNanos(System.nanoTime() - measureStart));
+  }
+
+  private void work(int worker, long end) {
+    SplittableRandom random = new SplittableRandom(worker);
+    int user = worker % settings.users();
+    String userName = CatalogueSeeder.userName(user);
+    String token = tokens.get(user);
+
+    while (System.nanoTime() < end) {
+      String isbn = CatalogueSeeder.isbn(random.nextInt(settings.books()));
+      switch (next(random)) {
+        case SEARCH -> call("search", api.search(pick(random, CatalogueSeeder.SEARCH_TERMS), token));
+        case DETAILS -> call("details", api.details(isbn, token));
+        case PROFILE -> call("profile", api.profile(userName, token));
+        case BORROW -> {
+          HttpResponse<String> loan = call("borrow", api.borrow(userName, isbn, token));
+          if (loan != null && loan.statusCode() == 200) {
+            call("return", api.returnLoan(userName, loanId(loan), token));
+          }
+        }
+      }
+    }
+  }
+
+  private HttpResponse<String> call(String endpoint, HttpRequest request) {
+    long start = System.nanoTime();
+    try {
+      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      if (recording) {
+        stats.get(endpoint).record(System.nanoTime() - start, response.statusCode());
+      }
+      return response;
+    } catch (IOException e) {
+      if (recording) {
+        stats.get(endpoint).recordFailure();
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private Operation next(SplittableRandom random) {
+    int value = random.nextInt(totalWeight);
+    for (Map.Entry<Operation, Integer> entry : settings.mix().entrySet()) {
+      value -= entry.getValue();
+      if (value < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException("Empty mix");
+  }
+
+  private long loanId(HttpResponse<String> loan) {
+    try {
+      return objectMapper.readTree(loan.body()).get("id").asLong();
+    } catch (IOException e) {
+      throw new IllegalStateException("Invalid loan " + loan.body(), e);
+    }
+  }
+
+  private static String pick(SplittableRandom random, List<String> values) {
+    return values.get(random.nextInt(values.size()));
+  }
+
+  private void print(PrintStream out, Duration measured) {
+    double seconds = measured.toNanos() / 1e9;
+    out.printf("%n%s: %d workers, %d books, %d users, measured %.1f s%n", api.name(), settings.concurrency(),
+        settings.books(), settings.users(), seconds);
+    out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+        "endpoint", "requests", "errors", "conflicts", "req/s", "p50 ms", "p99 ms", "max ms");
+    long total = 0;
+    for (EndpointStats endpoint : stats.values()) {
+      if (endpoint.requests() == 0 && endpoint.errors() == 0) {
+        continue;
+      }
+      total += endpoint.requests();
+      out.printf("%-10s %10d %8d %10d %10.1f %10.2f %10.2f %10.2f%n", endpoint.name(), endpoint.requests(),
+          endpoint.errors(), endpoint.conflicts(), endpoint.requests() / seconds, endpoint.percentileMillis(50),
+          endpoint.percentileMillis(99), endpoint.maxMillis());
+    }
+    out.printf("%-10s %10d %8s %10s %10.1f%n", "total", total, "", "", total / seconds);
+  }
+}